@@ -0,0 +1,54 @@
+package com.ajf.jlox;
+
+import java.util.List;
+
+//Compares the retained heap of the Statement/Expression tree the interpreter runs for a large generated script,
+//parsed with growable ArrayList children and a String per token, against the default compact layout: exactly
+//sized immutable child lists and one shared String per distinct lexeme.
+//Usage: AstHeapBenchmark [megabytes]
+public class AstHeapBenchmark {
+	public static void main (String[] args) {
+		int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		String source = ParallelParseBenchmark.generateScript(megabytes * 1024L * 1024L);
+
+		long plainBytes = treeBytes(source, false);
+		long compactBytes = treeBytes(source, true);
+
+		System.out.println("Input: " + megabytes + " MB");
+		System.out.printf("ArrayList children, lexeme per token: %8.1f MB%n", plainBytes / (1024.0 * 1024.0));
+		System.out.printf("compact (default):                    %8.1f MB  (%.1f%%)%n",
+						  compactBytes / (1024.0 * 1024.0), 100.0 * compactBytes / plainBytes);
+	}
+
+	private static long treeBytes (String source, boolean compact) {
+		long baseline = usedHeapAfterGc();
+
+		List<Statement> statements = parse(source, compact);
+		long bytes = usedHeapAfterGc() - baseline;
+
+		if (statements.isEmpty()) {
+			throw new IllegalStateException("Nothing parsed");
+		}
+
+		return bytes;
+	}
+
+	//Only the tree stays reachable once this returns, not the token list or the parser
+	private static List<Statement> parse (String source, boolean compact) {
+		Scanner scanner = new Scanner(source);
+		scanner.internLexemes = compact;
+		Parser parser = new Parser(scanner.scanTokens());
+		parser.compactLists = compact;
+		return parser.parse();
+	}
+
+	private static long usedHeapAfterGc () {
+		Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
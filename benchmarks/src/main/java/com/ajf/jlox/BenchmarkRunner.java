@@ -0,0 +1,21 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+//Entry point of benchmarks.jar: runs JMH with the GC profiler attached so allocation rates are always reported.
+//Accepts the usual JMH command line, e.g. "java -jar benchmarks.jar PipelineBenchmark.interpret -p program=fib".
+public class BenchmarkRunner {
+	public static void main (String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+
+		new Runner(new OptionsBuilder()
+						   .parent(commandLine)
+						   .addProfiler(GCProfiler.class)
+						   .build()).run();
+	}
+}
@@ -0,0 +1,88 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Stores then sums `size` numbers: in a List, in a Map keyed by index, and in the chain of instance fields
+//scripts used before collections existed
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionBenchmark {
+	@Param({"list", "map", "fields"})
+	public String storage;
+
+	@Param({"10000"})
+	public int size;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		statements = new Parser(new Scanner(source()).scanTokens()).parse();
+
+		interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+	}
+
+	private String source () {
+		switch (storage) {
+			case "list":
+				return "var values = List();\n"
+						+ "var i = 0;\n"
+						+ "while (i < " + size + ") { values.add(i); i = i + 1; }\n"
+						+ "var sum = 0;\n"
+						+ "i = 0;\n"
+						+ "while (i < " + size + ") { sum = sum + values[i]; i = i + 1; }\n"
+						+ "print sum;\n";
+			case "map":
+				return "var values = Map();\n"
+						+ "var i = 0;\n"
+						+ "while (i < " + size + ") { values[i] = i; i = i + 1; }\n"
+						+ "var sum = 0;\n"
+						+ "i = 0;\n"
+						+ "while (i < " + size + ") { sum = sum + values[i]; i = i + 1; }\n"
+						+ "print sum;\n";
+			case "fields":
+				return "class Cell {}\n"
+						+ "var head = nil;\n"
+						+ "var i = 0;\n"
+						+ "while (i < " + size + ") {\n"
+						+ "\tvar cell = Cell();\n"
+						+ "\tcell.value = i;\n"
+						+ "\tcell.next = head;\n"
+						+ "\thead = cell;\n"
+						+ "\ti = i + 1;\n"
+						+ "}\n"
+						+ "var sum = 0;\n"
+						+ "var cell = head;\n"
+						+ "while (cell != nil) { sum = sum + cell.value; cell = cell.next; }\n"
+						+ "print sum;\n";
+			default:
+				throw new IllegalArgumentException("Unknown storage " + storage);
+		}
+	}
+
+	@Benchmark
+	public Interpreter storeAndSum () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
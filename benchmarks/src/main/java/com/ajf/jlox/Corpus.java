@@ -0,0 +1,21 @@
+package com.ajf.jlox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+//Representative Lox programs bundled under resources/corpus
+class Corpus {
+	static String load (String program) {
+		try (InputStream input = Corpus.class.getResourceAsStream("/corpus/" + program + ".lox")) {
+			if (input == null) {
+				throw new IllegalArgumentException("No corpus program named " + program);
+			}
+
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+}
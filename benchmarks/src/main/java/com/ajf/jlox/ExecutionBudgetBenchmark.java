@@ -0,0 +1,54 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Cost of step accounting: runs loop- and call-heavy programs with no limits and with step and time limits set
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionBudgetBenchmark {
+	@Param({"loops", "fib"})
+	public String program;
+
+	@Param({"unlimited", "limited"})
+	public String limits;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		statements = new Parser(new Scanner(Corpus.load(program)).scanTokens()).parse();
+
+		interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+
+		if (limits.equals("limited")) {
+			interpreter.budget.setStepLimit(Long.MAX_VALUE / 2);
+			interpreter.budget.setTimeLimitMillis(TimeUnit.HOURS.toMillis(1));
+		}
+	}
+
+	@Benchmark
+	public Interpreter interpret () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
@@ -0,0 +1,66 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//A fresh interpreter importing a generated 256 KB module, with the process-wide module cache emptied before
+//every run ("cold") or kept ("warm")
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportBenchmark {
+	@Param({"cold", "warm"})
+	public String cache;
+
+	private Path directory;
+	private List<Statement> statements;
+
+	@Setup(Level.Trial)
+	public void setUp () throws IOException {
+		directory = Files.createTempDirectory("jlox-import");
+		Files.write(directory.resolve("library.lox"),
+					ParallelParseBenchmark.generateScript(256 * 1024).getBytes(StandardCharsets.UTF_8));
+
+		statements = new Parser(new Scanner("import \"library.lox\";\n").scanTokens()).parse();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown () throws IOException {
+		ModuleCache.clear();
+		Files.delete(directory.resolve("library.lox"));
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public Interpreter importModule () {
+		if (cache.equals("cold")) {
+			ModuleCache.clear();
+		}
+
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter, directory).resolve(statements);
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
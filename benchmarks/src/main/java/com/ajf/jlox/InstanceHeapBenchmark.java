@@ -0,0 +1,74 @@
+package com.ajf.jlox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Retained bytes per Lox instance with three fields. A script builds the instances into a List; the same data is
+//then rebuilt in the previous representation, one HashMap of fields per instance, for comparison.
+//Usage: InstanceHeapBenchmark [instances]
+public class InstanceHeapBenchmark {
+	public static void main (String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+		String source = "class Point { init(x, y, z) { this.x = x; this.y = y; this.z = z; } }\n"
+				+ "var points = List();\n"
+				+ "var i = 0;\n"
+				+ "while (i < " + count + ") { points.add(Point(i, i, i)); i = i + 1; }\n";
+
+		List<Statement> statements = new Parser(new Scanner(source).scanTokens()).parse();
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+
+		long baseline = usedHeapAfterGc();
+		interpreter.interpret(statements);
+		long layoutBytes = usedHeapAfterGc() - baseline;
+
+		List<Object> hashMapInstances = buildHashMapInstances(count);
+		long hashMapBytes = usedHeapAfterGc() - baseline - layoutBytes;
+
+		System.out.println("Instances: " + count + " with 3 fields, including the list and boxed field values");
+		System.out.printf("array layout:  %6.1f bytes per instance%n", (double) layoutBytes / count);
+		System.out.printf("HashMap field: %6.1f bytes per instance%n", (double) hashMapBytes / count);
+
+		if (hashMapInstances.size() != count || interpreter.globals.slotFor("points") < 0) {
+			throw new IllegalStateException("Instances were not retained");
+		}
+	}
+
+	//Mirrors the instance and value allocation of the script with the old per-instance HashMap storage
+	private static List<Object> buildHashMapInstances (int count) {
+		List<Object> instances = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			Double value = (double) i;
+			Map<String, Object> fields = new HashMap<>();
+			fields.put("x", value);
+			fields.put("y", value);
+			fields.put("z", value);
+			instances.add(new HashMapInstance(fields));
+		}
+
+		return instances;
+	}
+
+	private static class HashMapInstance {
+		private final Object loxClass = null;
+		private final Map<String, Object> fields;
+
+		HashMapInstance (Map<String, Object> fields) {
+			this.fields = fields;
+		}
+	}
+
+	private static long usedHeapAfterGc () {
+		Runtime runtime = Runtime.getRuntime();
+
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,52 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Recursive fib(n) as written, and memoized with a fresh cache on every run
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoizeBenchmark {
+	@Param({"plain", "memoized"})
+	public String function;
+
+	@Param({"20"})
+	public int n;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		String source = "fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n"
+				+ (function.equals("memoized") ? "fib = memoize(fib);\n" : "")
+				+ "print fib(" + n + ");\n";
+
+		statements = new Parser(new Scanner(source).scanTokens()).parse();
+		interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+	}
+
+	@Benchmark
+	public Interpreter fib () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
@@ -0,0 +1,54 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//10,000 calls of a method that reads 'this'. "direct" is 'counter.add(i)', which passes the receiver through the
+//call; "bound" is '(counter.add)(i)', which reads the method as a value and so allocates a BoundMethod per call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodCallBenchmark {
+	@Param({"direct", "bound"})
+	public String call;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		String callee = call.equals("direct") ? "counter.add" : "(counter.add)";
+		String source = "class Counter { add(n) { this.total = this.total + n; } }\n"
+				+ "var counter = Counter();\n"
+				+ "counter.total = 0;\n"
+				+ "var i = 0;\n"
+				+ "while (i < 10000) { " + callee + "(i); i = i + 1; }\n"
+				+ "print counter.total;\n";
+
+		statements = new Parser(new Scanner(source).scanTokens()).parse();
+		interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+	}
+
+	@Benchmark
+	public Interpreter callMethods () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
@@ -0,0 +1,67 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//10,000 calls of pow(i, 2) through the MethodHandle-bound standard library native and through a hand-written
+//LoxCallable doing the same conversions
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeCallBenchmark {
+	@Param({"pow", "handPow"})
+	public String function;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		interpreter = new Interpreter(OutputSink.discarding());
+		interpreter.globals.define("handPow", new LoxCallable() {
+			@Override
+			public Object call (Interpreter interpreter, List<Object> arguments) {
+				if (! (arguments.get(0) instanceof Double) || ! (arguments.get(1) instanceof Double)) {
+					throw new RuntimeError(interpreter.callSite, "handPow(): Expected a number.");
+				}
+
+				return Math.pow((Double) arguments.get(0), (Double) arguments.get(1));
+			}
+
+			@Override
+			public int arity () {
+				return 2;
+			}
+		});
+
+		String source = "var total = 0;\n"
+				+ "var i = 0;\n"
+				+ "while (i < 10000) { total = total + " + function + "(i, 2); i = i + 1; }\n"
+				+ "print total;\n";
+
+		statements = new Parser(new Scanner(source).scanTokens()).parse();
+		new Resolver(interpreter).resolve(statements);
+	}
+
+	@Benchmark
+	public Interpreter callNatives () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
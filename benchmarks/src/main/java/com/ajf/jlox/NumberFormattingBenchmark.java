@@ -0,0 +1,72 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Formatting printed numbers: the previous Double.toString and '.0' trimming against NumberFormatter
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NumberFormattingBenchmark {
+	private static final int COUNT = 1024;
+
+	@Param({"integral", "fractional"})
+	public String numbers;
+
+	private final double[] values = new double[COUNT];
+	private final NumberFormatter formatter = new NumberFormatter();
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		Random random = new Random(42);
+
+		for (int i = 0; i < COUNT; i++) {
+			int whole = random.nextInt(1_000_000);
+			values[i] = numbers.equals("integral") ? whole : whole / 100.0;
+		}
+	}
+
+	@Benchmark
+	public int doubleToString () {
+		int length = 0;
+
+		for (double value : values) {
+			String text = Double.toString(value);
+
+			if (text.endsWith(".0")) {
+				text = text.substring(0, text.length() - 2);
+			}
+
+			length += text.length();
+		}
+
+		return length;
+	}
+
+	@Benchmark
+	public int numberFormatter () {
+		int length = 0;
+
+		for (double value : values) {
+			length += formatter.format(value);
+		}
+
+		return length;
+	}
+}
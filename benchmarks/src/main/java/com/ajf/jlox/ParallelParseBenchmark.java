@@ -0,0 +1,83 @@
+package com.ajf.jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+//Measures how ParallelParser scales with core count on a generated script of independent declarations.
+//Usage: ParallelParseBenchmark [megabytes] [runs]
+public class ParallelParseBenchmark {
+	private static final int CHUNK_SIZE = 16384;
+
+	public static void main (String[] args) {
+		int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		String source = generateScript(megabytes * 1024L * 1024L);
+		List<Token> tokens = new Scanner(source).scanTokens();
+		System.out.println("Input: " + source.length() / (1024 * 1024) + " MB, " + tokens.size() + " tokens");
+
+		long serialNanos = bestOf(runs, () -> new Parser(tokens).parse().size());
+		System.out.printf("serial parser:          %8.1f ms%n", serialNanos / 1e6);
+
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < Runtime.getRuntime().availableProcessors(); threads *= 2) {
+			threadCounts.add(threads);
+		}
+		threadCounts.add(Runtime.getRuntime().availableProcessors());
+
+		for (int threads : threadCounts) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			long parallelNanos = bestOf(runs, () -> new ParallelParser(tokens, pool, CHUNK_SIZE).parse(1).statements.size());
+			pool.shutdown();
+
+			System.out.printf("parallel, %3d threads:  %8.1f ms  (%.2fx)%n", threads, parallelNanos / 1e6,
+							  (double) serialNanos / parallelNanos);
+		}
+	}
+
+	private static long bestOf (int runs, ParseRun run) {
+		run.parse();
+
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			run.parse();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return best;
+	}
+
+	static String generateScript (long targetLength) {
+		StringBuilder builder = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, targetLength + 1024));
+
+		for (int i = 0; builder.length() < targetLength; i++) {
+			if (i % 4 == 0) {
+				builder.append("class Shape").append(i).append(" {\n")
+					   .append("\tarea(width, height) {\n")
+					   .append("\t\tvar result = width * height;\n")
+					   .append("\t\tif (result < 0) { return -result; }\n")
+					   .append("\t\treturn result;\n")
+					   .append("\t}\n")
+					   .append("}\n");
+			} else {
+				builder.append("fun compute").append(i).append("(a, b) {\n")
+					   .append("\tvar total = 0;\n")
+					   .append("\tfor (var i = 0; i < a; i = i + 1) {\n")
+					   .append("\t\ttotal = total + b * i - (a / 2);\n")
+					   .append("\t}\n")
+					   .append("\twhile (total > 100 and b != nil) { total = total - 100; }\n")
+					   .append("\tprint \"compute").append(i).append("\";\n")
+					   .append("\treturn total;\n")
+					   .append("}\n");
+			}
+		}
+
+		return builder.toString();
+	}
+
+	private interface ParseRun {
+		int parse ();
+	}
+}
@@ -0,0 +1,71 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//One benchmark per interpreter stage, each run over every corpus program
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+	@Param({"fib", "loops", "strings", "classes", "closures"})
+	public String program;
+
+	private String source;
+	private List<Token> tokens;
+	private List<Statement> statements;
+	private Interpreter interpreter;
+	//Target of the resolve benchmark, kept apart from the interpreter that runs the program. Resolving the same
+	//statements again only overwrites its entries, so each invocation measures Resolver.resolve alone.
+	private Interpreter resolveInterpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		source = Corpus.load(program);
+		tokens = new Scanner(source).scanTokens();
+		statements = new Parser(tokens).parse();
+
+		interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+
+		resolveInterpreter = new Interpreter(OutputSink.discarding());
+	}
+
+	@Benchmark
+	public List<Token> scan () {
+		return new Scanner(source).scanTokens();
+	}
+
+	@Benchmark
+	public List<Statement> parse () {
+		return new Parser(tokens).parse();
+	}
+
+	@Benchmark
+	public Interpreter resolve () {
+		new Resolver(resolveInterpreter).resolve(statements);
+		return resolveInterpreter;
+	}
+
+	@Benchmark
+	public Interpreter interpret () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
@@ -0,0 +1,54 @@
+package com.ajf.jlox;
+
+import java.util.List;
+
+//Measures Resolver throughput on generated functions with deeply nested blocks.
+//Usage: ResolverBenchmark [functions] [nesting depth] [runs]
+public class ResolverBenchmark {
+	public static void main (String[] args) {
+		int functions = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int depth = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+		int runs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+		List<Statement> statements = new Parser(new Scanner(generateScript(functions, depth)).scanTokens()).parse();
+
+		for (int i = 0; i < runs / 2; i++) {
+			new Resolver(new Interpreter(OutputSink.discarding())).resolve(statements);
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < runs; i++) {
+			Resolver resolver = new Resolver(new Interpreter(OutputSink.discarding()));
+
+			long start = System.nanoTime();
+			resolver.resolve(statements);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		long blocks = (long) functions * depth;
+		System.out.printf("%d functions, depth %d: %.2f ms per resolve, %.1f M blocks/s%n", functions, depth,
+						  best / 1e6, blocks / (best / 1e9) / 1e6);
+	}
+
+	static String generateScript (int functions, int depth) {
+		StringBuilder builder = new StringBuilder();
+
+		for (int f = 0; f < functions; f++) {
+			builder.append("fun nested").append(f).append("(a, b) {\n");
+			builder.append("var level0 = a;\n");
+
+			for (int level = 1; level <= depth; level++) {
+				builder.append("{ var level").append(level).append(" = level").append(level - 1).append(" + b;\n");
+				builder.append("var a = level").append(level).append(" * level0;\n");
+			}
+
+			for (int level = depth; level >= 1; level--) {
+				builder.append("b = a + level").append(level).append("; }\n");
+			}
+
+			builder.append("return nested").append(f).append(";\n}\n");
+		}
+
+		return builder.toString();
+	}
+}
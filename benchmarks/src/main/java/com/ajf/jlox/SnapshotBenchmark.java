@@ -0,0 +1,100 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//A fresh interpreter initialized by running a prelude of 300 functions, 100 classes and a 20,000 entry lookup
+//table from source, or by restoring a snapshot taken after the prelude ran
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+	@Param({"prelude", "restore"})
+	public String initialization;
+
+	private String prelude;
+	private Path snapshot;
+
+	@Setup(Level.Trial)
+	public void setUp () throws IOException {
+		prelude = generatePrelude(300, 100, 20_000);
+
+		Interpreter interpreter = runPrelude();
+		snapshot = Files.createTempFile("jlox-prelude", ".img");
+		interpreter.snapshot(snapshot);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown () throws IOException {
+		Files.delete(snapshot);
+	}
+
+	@Benchmark
+	public Interpreter initialize () throws IOException {
+		if (initialization.equals("prelude")) {
+			return runPrelude();
+		}
+
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		interpreter.restore(snapshot);
+		return interpreter;
+	}
+
+	private Interpreter runPrelude () {
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		List<Statement> statements = new Parser(new Scanner(prelude).scanTokens()).parse();
+		new Resolver(interpreter).resolve(statements);
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+
+	static String generatePrelude (int functions, int classes, int tableEntries) {
+		StringBuilder source = new StringBuilder();
+
+		for (int i = 0; i < functions; i++) {
+			source.append("fun helper").append(i).append("(x, y) {\n")
+				  .append("\tvar total = x * ").append(i).append(" + y;\n")
+				  .append("\tif (total > 1000) return total - 1000;\n")
+				  .append("\treturn total;\n")
+				  .append("}\n");
+		}
+
+		for (int i = 0; i < classes; i++) {
+			source.append("class Shape").append(i).append(" {\n")
+				  .append("\tinit(size) { this.size = size; this.scale = ").append(i).append("; }\n")
+				  .append("\tarea() { return this.size * this.size * this.scale; }\n")
+				  .append("\tgrow(amount) { this.size = this.size + amount; return this; }\n")
+				  .append("}\n")
+				  .append("var shape").append(i).append(" = Shape").append(i).append("(").append(i).append(");\n");
+		}
+
+		source.append("var squares = Map();\n")
+			  .append("var keys = List();\n")
+			  .append("for (var i = 0; i < ").append(tableEntries).append("; i = i + 1) {\n")
+			  .append("\tsquares[i] = helper7(i, i);\n")
+			  .append("\tkeys.add(i);\n")
+			  .append("}\n");
+
+		return source.toString();
+	}
+}
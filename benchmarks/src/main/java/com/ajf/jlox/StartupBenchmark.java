@@ -0,0 +1,104 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Time from launching 'java com.ajf.jlox.Lox hello.lox' to reading its first line of output, without and with an
+//AppCDS archive. The archive is written in setup by a training run of the same script, like the cds build profile.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartupBenchmark {
+	@Param({"none", "cds"})
+	public String archive;
+
+	private Path directory;
+	private List<String> command;
+	private Process process;
+
+	@Setup(Level.Trial)
+	public void setUp () throws IOException, InterruptedException, URISyntaxException {
+		directory = Files.createTempDirectory("jlox-startup");
+		Path script = directory.resolve("hello.lox");
+		Files.write(script, "print \"hello\";\n".getBytes(StandardCharsets.UTF_8));
+
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		String classPath = Paths.get(Lox.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+		Path archiveFile = directory.resolve("jlox.jsa");
+
+		if (archive.equals("cds")) {
+			Process training = new ProcessBuilder(java, "-Xlog:cds=off", "-XX:ArchiveClassesAtExit=" + archiveFile,
+												  "-cp", classPath, "com.ajf.jlox.Lox", script.toString())
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+					.redirectError(ProcessBuilder.Redirect.DISCARD)
+					.start();
+
+			if (training.waitFor() != 0 || ! Files.exists(archiveFile)) {
+				throw new IllegalStateException("Could not create the CDS archive");
+			}
+		}
+
+		command = new ArrayList<>();
+		command.add(java);
+		if (archive.equals("cds")) {
+			command.add("-XX:SharedArchiveFile=" + archiveFile);
+		}
+		command.add("-cp");
+		command.add(classPath);
+		command.add("com.ajf.jlox.Lox");
+		command.add(script.toString());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown () throws IOException {
+		Files.deleteIfExists(directory.resolve("jlox.jsa"));
+		Files.delete(directory.resolve("hello.lox"));
+		Files.delete(directory);
+	}
+
+	//Each invocation is a whole process launch, so per-invocation fixture overhead is negligible
+	@TearDown(Level.Invocation)
+	public void awaitExit () throws InterruptedException {
+		process.waitFor();
+	}
+
+	@Benchmark
+	public String firstPrint () throws IOException {
+		process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+
+		BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+		String line = output.readLine();
+
+		if (! "hello".equals(line)) {
+			throw new IllegalStateException("Unexpected output: " + line);
+		}
+
+		return line;
+	}
+}
@@ -0,0 +1,53 @@
+package com.ajf.jlox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Builds a string of the given length (10 MB by default) in a Lox loop with repeated '+', then prints it once
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StringBuildingBenchmark {
+	@Param({"10485760"})
+	public int length;
+
+	private List<Statement> statements;
+	private Interpreter interpreter;
+
+	@Setup(Level.Trial)
+	public void setUp () {
+		String source = "var text = \"\";\n"
+				+ "var i = 0;\n"
+				+ "while (i < " + length / 16 + ") {\n"
+				+ "\ttext = text + \"0123456789abcdef\";\n"
+				+ "\ti = i + 1;\n"
+				+ "}\n"
+				+ "print text;\n";
+
+		statements = new Parser(new Scanner(source).scanTokens()).parse();
+		interpreter = new Interpreter(OutputSink.discarding());
+		new Resolver(interpreter).resolve(statements);
+	}
+
+	@Benchmark
+	public Interpreter build () {
+		interpreter.interpret(statements);
+		return interpreter;
+	}
+}
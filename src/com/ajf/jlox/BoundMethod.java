@@ -0,0 +1,38 @@
+package com.ajf.jlox;
+
+import java.util.List;
+
+//A method read as a value, e.g. 'var f = object.method;'. Direct calls such as 'object.method()' pass the
+//receiver straight to LoxFunction.callMethod and never create one.
+public class BoundMethod implements LoxCallable {
+	private final Object receiver;
+	private final LoxFunction method;
+
+	BoundMethod (Object receiver, LoxFunction method) {
+		this.receiver = receiver;
+		this.method = method;
+	}
+
+	Object receiver () {
+		return receiver;
+	}
+
+	LoxFunction method () {
+		return method;
+	}
+
+	@Override
+	public Object call (Interpreter interpreter, List<Object> arguments) {
+		return method.callMethod(interpreter, receiver, arguments);
+	}
+
+	@Override
+	public int arity () {
+		return method.arity();
+	}
+
+	@Override
+	public String toString () {
+		return method.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package com.ajf.jlox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Output sink that encodes straight into a direct buffer and writes it to a FileChannel, used for --output=file
+public class ChannelOutputSink implements OutputSink {
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	//Same charset and replacement of unencodable characters, such as a lone surrogate, as the stdout sink
+	private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private final CharBuffer lineSeparator = CharBuffer.wrap(System.lineSeparator());
+	//Wrapper for the last char[] printed; callers such as the number formatter reuse one array
+	private CharBuffer wrappedCharacters = CharBuffer.allocate(0);
+
+	public ChannelOutputSink (FileChannel channel) {
+		this.channel = channel;
+	}
+
+	public static ChannelOutputSink open (Path path) throws IOException {
+		return new ChannelOutputSink(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+													  StandardOpenOption.TRUNCATE_EXISTING));
+	}
+
+	@Override
+	public synchronized void printLine (CharSequence text) {
+		encode(CharBuffer.wrap(text));
+		encode(lineSeparator.rewind());
+	}
+
+	@Override
+	public synchronized void printLine (char[] characters, int offset, int length) {
+		if (! wrappedCharacters.hasArray() || wrappedCharacters.array() != characters) {
+			wrappedCharacters = CharBuffer.wrap(characters);
+		}
+
+		wrappedCharacters.limit(offset + length).position(offset);
+		encode(wrappedCharacters);
+		encode(lineSeparator.rewind());
+	}
+
+	private void encode (CharBuffer characters) {
+		encoder.reset();
+
+		while (true) {
+			CoderResult result = encoder.encode(characters, buffer, true);
+
+			if (result.isOverflow()) {
+				writeBuffer();
+			} else if (result.isUnderflow()) {
+				return;
+			} else {
+				throw new IllegalStateException("Unable to encode output: " + result);
+			}
+		}
+	}
+
+	private void writeBuffer () {
+		buffer.flip();
+
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+		buffer.clear();
+	}
+
+	@Override
+	public synchronized void flush () {
+		writeBuffer();
+	}
+}
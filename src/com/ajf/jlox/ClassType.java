@@ -0,0 +1,5 @@
+package com.ajf.jlox;
+
+public enum ClassType {
+	NONE, CLASS, SUBCLASS
+}
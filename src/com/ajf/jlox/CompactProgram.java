@@ -0,0 +1,663 @@
+package com.ajf.jlox;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Serialized form of the function declarations in an InterpreterSnapshot. The interpreter never executes it: a
+//restored program is decoded back into Statement/Expression trees, whose compact layout comes from the Parser.
+//Nodes are written in preorder into one int array; tokens become indices into a shared token table holding
+//type, lexeme and line, and child lists are stored as a count followed by the children.
+final class CompactProgram {
+	private static final int NONE = 0;
+	private static final int ASSIGN = 1;
+	private static final int BINARY = 2;
+	private static final int CALL = 3;
+	private static final int GET = 4;
+	private static final int SET = 5;
+	private static final int GROUPING = 6;
+	private static final int LITERAL = 7;
+	private static final int LOGICAL = 8;
+	private static final int UNARY = 9;
+	private static final int VARIABLE = 10;
+	private static final int BLOCK = 11;
+	private static final int CLASS = 12;
+	private static final int EXPRESSION_STATEMENT = 13;
+	private static final int FUNCTION = 14;
+	private static final int IF = 15;
+	private static final int PRINT = 16;
+	private static final int RETURN = 17;
+	private static final int WHILE = 18;
+	private static final int VARIABLE_STATEMENT = 19;
+	private static final int INDEX = 20;
+	private static final int INDEX_SET = 21;
+	private static final int SUPER = 22;
+	private static final int THIS = 23;
+	private static final int IMPORT = 24;
+	//A function declaration already written at the given offset, see visitFunctionStatement
+	private static final int FUNCTION_REFERENCE = 25;
+
+	private static final byte CONSTANT_NUMBER = 0;
+	private static final byte CONSTANT_STRING = 1;
+	private static final byte CONSTANT_TRUE = 2;
+	private static final byte CONSTANT_FALSE = 3;
+
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	private final int[] code;
+	private final byte[] tokenTypes;
+	private final String[] tokenLexemes;
+	private final int[] tokenLines;
+	private final Object[] constants;
+
+	private CompactProgram (int[] code, byte[] tokenTypes, String[] tokenLexemes, int[] tokenLines, Object[] constants) {
+		this.code = code;
+		this.tokenTypes = tokenTypes;
+		this.tokenLexemes = tokenLexemes;
+		this.tokenLines = tokenLines;
+		this.constants = constants;
+	}
+
+	//Records the code offset of every node written in nodeOffsets. Decoding puts each new node at the same offset,
+	//which is how snapshots carry identity-keyed data such as resolver depths across an encoding.
+	static CompactProgram encode (List<? extends Statement> statements, Map<Object, Integer> nodeOffsets) {
+		Encoder encoder = new Encoder(nodeOffsets);
+		encoder.writeStatements(statements);
+		return encoder.finish();
+	}
+
+	//nodesByOffset must have nodeCodeLength() elements
+	List<Statement> decode (Object[] nodesByOffset) {
+		return new Decoder(nodesByOffset).readStatements();
+	}
+
+	//Binary form stored in snapshots: the code, the token table with each distinct lexeme written once, and the
+	//literal constants. All integers are big-endian, matching ByteBuffer's default order for readFrom.
+	void writeTo (DataOutput output) throws IOException {
+		output.writeInt(code.length);
+		for (int value : code) {
+			output.writeInt(value);
+		}
+
+		Map<String, Integer> lexemeIndexes = new HashMap<>();
+		List<String> lexemes = new ArrayList<>();
+		int[] tokenLexemeIndexes = new int[tokenLexemes.length];
+
+		for (int i = 0; i < tokenLexemes.length; i++) {
+			tokenLexemeIndexes[i] = lexemeIndexes.computeIfAbsent(tokenLexemes[i], lexeme -> {
+				lexemes.add(lexeme);
+				return lexemes.size() - 1;
+			});
+		}
+
+		output.writeInt(lexemes.size());
+		for (String lexeme : lexemes) {
+			writeString(output, lexeme);
+		}
+
+		output.writeInt(tokenTypes.length);
+		output.write(tokenTypes);
+		for (int i = 0; i < tokenTypes.length; i++) {
+			output.writeInt(tokenLexemeIndexes[i]);
+			output.writeInt(tokenLines[i]);
+		}
+
+		output.writeInt(constants.length);
+		for (Object constant : constants) {
+			if (constant instanceof Double) {
+				output.writeByte(CONSTANT_NUMBER);
+				output.writeDouble((Double) constant);
+			} else if (constant instanceof String) {
+				output.writeByte(CONSTANT_STRING);
+				writeString(output, (String) constant);
+			} else if (constant instanceof Boolean) {
+				output.writeByte((Boolean) constant ? CONSTANT_TRUE : CONSTANT_FALSE);
+			} else {
+				throw new IllegalStateException("Unexpected constant: " + constant);
+			}
+		}
+	}
+
+	static CompactProgram readFrom (ByteBuffer buffer) {
+		int[] code = new int[readLength(buffer, Integer.BYTES)];
+		buffer.asIntBuffer().get(code);
+		buffer.position(buffer.position() + code.length * Integer.BYTES);
+
+		String[] lexemes = new String[readLength(buffer, Integer.BYTES)];
+		for (int i = 0; i < lexemes.length; i++) {
+			lexemes[i] = readString(buffer);
+		}
+
+		byte[] tokenTypes = new byte[readLength(buffer, 1 + 2 * Integer.BYTES)];
+		buffer.get(tokenTypes);
+		String[] tokenLexemes = new String[tokenTypes.length];
+		int[] tokenLines = new int[tokenTypes.length];
+		for (int i = 0; i < tokenTypes.length; i++) {
+			tokenLexemes[i] = lexemes[buffer.getInt()];
+			tokenLines[i] = buffer.getInt();
+		}
+
+		Object[] constants = new Object[readLength(buffer, 1)];
+		for (int i = 0; i < constants.length; i++) {
+			byte tag = buffer.get();
+
+			switch (tag) {
+				case CONSTANT_NUMBER:
+					constants[i] = buffer.getDouble();
+					break;
+				case CONSTANT_STRING:
+					constants[i] = readString(buffer);
+					break;
+				case CONSTANT_TRUE:
+				case CONSTANT_FALSE:
+					constants[i] = tag == CONSTANT_TRUE;
+					break;
+				default:
+					throw new IllegalStateException("Unexpected constant tag: " + tag);
+			}
+		}
+
+		return new CompactProgram(code, tokenTypes, tokenLexemes, tokenLines, constants);
+	}
+
+	//Length-prefixed UTF-8, without DataOutput.writeUTF's 64 KB limit
+	static void writeString (DataOutput output, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	static String readString (ByteBuffer buffer) {
+		byte[] bytes = new byte[readLength(buffer, 1)];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	//Reads an element count and checks that the rest of the buffer could hold that many elements of at least
+	//elementBytes each, so a corrupt count fails here instead of allocating a huge or negative sized array
+	static int readLength (ByteBuffer buffer, int elementBytes) {
+		int length = buffer.getInt();
+
+		if (length < 0 || length > buffer.remaining() / elementBytes) {
+			throw new IllegalStateException("Invalid length: " + length);
+		}
+
+		return length;
+	}
+
+	int nodeCodeLength () {
+		return code.length;
+	}
+
+	private static class Encoder implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+		private int[] code = new int[1024];
+		private int codeLength = 0;
+
+		private final Map<Token, Integer> tokenIndexes = new HashMap<>();
+		private final List<Token> tokens = new ArrayList<>();
+		private final Map<String, String> lexemes = new HashMap<>();
+		private final Map<Object, Integer> constantIndexes = new HashMap<>();
+		private final List<Object> constants = new ArrayList<>();
+		private final Map<Object, Integer> nodeOffsets;
+
+		Encoder (Map<Object, Integer> nodeOffsets) {
+			this.nodeOffsets = nodeOffsets;
+		}
+
+		CompactProgram finish () {
+			byte[] tokenTypes = new byte[tokens.size()];
+			String[] tokenLexemes = new String[tokens.size()];
+			int[] tokenLines = new int[tokens.size()];
+
+			for (int i = 0; i < tokens.size(); i++) {
+				Token token = tokens.get(i);
+				tokenTypes[i] = (byte) token.type.ordinal();
+				tokenLexemes[i] = lexemes.computeIfAbsent(token.lexeme, lexeme -> lexeme);
+				tokenLines[i] = token.line;
+			}
+
+			return new CompactProgram(Arrays.copyOf(code, codeLength), tokenTypes, tokenLexemes, tokenLines,
+									  constants.toArray());
+		}
+
+		private void write (int value) {
+			if (codeLength == code.length) {
+				code = Arrays.copyOf(code, code.length * 2);
+			}
+
+			code[codeLength++] = value;
+		}
+
+		private void writeNode (int kind, Object node) {
+			nodeOffsets.put(node, codeLength);
+			write(kind);
+		}
+
+		private void writeToken (Token token) {
+			Integer index = tokenIndexes.get(token);
+
+			if (index == null) {
+				index = tokens.size();
+				tokens.add(token);
+				tokenIndexes.put(token, index);
+			}
+
+			write(index);
+		}
+
+		private void writeConstant (Object value) {
+			if (value == null) {
+				write(- 1);
+				return;
+			}
+
+			Integer index = constantIndexes.get(value);
+
+			if (index == null) {
+				index = constants.size();
+				constants.add(value);
+				constantIndexes.put(value, index);
+			}
+
+			write(index);
+		}
+
+		private void writeExpression (Expression expression) {
+			if (expression == null) {
+				write(NONE);
+			} else {
+				expression.accept(this);
+			}
+		}
+
+		private void writeStatement (Statement statement) {
+			if (statement == null) {
+				write(NONE);
+			} else {
+				statement.accept(this);
+			}
+		}
+
+		private void writeStatements (List<? extends Statement> statements) {
+			write(statements.size());
+			for (Statement statement : statements) {
+				writeStatement(statement);
+			}
+		}
+
+		@Override
+		public Void visitAssignExpression (Expression.AssignExpression expression) {
+			writeNode(ASSIGN, expression);
+			writeToken(expression.variableName);
+			writeExpression(expression.value);
+			return null;
+		}
+
+		@Override
+		public Void visitBinaryExpression (Expression.BinaryExpression expression) {
+			writeNode(BINARY, expression);
+			writeExpression(expression.left);
+			writeToken(expression.operator);
+			writeExpression(expression.right);
+			return null;
+		}
+
+		@Override
+		public Void visitCallExpression (Expression.CallExpression expression) {
+			writeNode(CALL, expression);
+			writeExpression(expression.callee);
+			writeToken(expression.paren);
+			write(expression.arguments.size());
+			for (Expression argument : expression.arguments) {
+				writeExpression(argument);
+			}
+			return null;
+		}
+
+		@Override
+		public Void visitGetExpression (Expression.GetExpression expression) {
+			writeNode(GET, expression);
+			writeExpression(expression.object);
+			writeToken(expression.className);
+			return null;
+		}
+
+		@Override
+		public Void visitSetExpression (Expression.SetExpression expression) {
+			writeNode(SET, expression);
+			writeExpression(expression.object);
+			writeToken(expression.name);
+			writeExpression(expression.value);
+			return null;
+		}
+
+		@Override
+		public Void visitIndexExpression (Expression.IndexExpression expression) {
+			writeNode(INDEX, expression);
+			writeExpression(expression.object);
+			writeToken(expression.bracket);
+			writeExpression(expression.index);
+			return null;
+		}
+
+		@Override
+		public Void visitIndexSetExpression (Expression.IndexSetExpression expression) {
+			writeNode(INDEX_SET, expression);
+			writeExpression(expression.object);
+			writeToken(expression.bracket);
+			writeExpression(expression.index);
+			writeExpression(expression.value);
+			return null;
+		}
+
+		@Override
+		public Void visitSuperExpression (Expression.SuperExpression expression) {
+			writeNode(SUPER, expression);
+			writeToken(expression.keyword);
+			writeToken(expression.method);
+			return null;
+		}
+
+		@Override
+		public Void visitThisExpression (Expression.ThisExpression expression) {
+			writeNode(THIS, expression);
+			writeToken(expression.keyword);
+			return null;
+		}
+
+		@Override
+		public Void visitGroupingExpression (Expression.GroupingExpression expression) {
+			writeNode(GROUPING, expression);
+			writeExpression(expression.expression);
+			return null;
+		}
+
+		@Override
+		public Void visitLiteralExpression (Expression.LiteralExpression expression) {
+			writeNode(LITERAL, expression);
+			writeConstant(expression.value);
+			return null;
+		}
+
+		@Override
+		public Void visitLogicalExpression (Expression.LogicalExpression expression) {
+			writeNode(LOGICAL, expression);
+			writeExpression(expression.left);
+			writeToken(expression.operator);
+			writeExpression(expression.right);
+			return null;
+		}
+
+		@Override
+		public Void visitUnaryExpression (Expression.UnaryExpression expression) {
+			writeNode(UNARY, expression);
+			writeToken(expression.operator);
+			writeExpression(expression.right);
+			return null;
+		}
+
+		@Override
+		public Void visitVariableExpression (Expression.VariableExpression expression) {
+			writeNode(VARIABLE, expression);
+			writeToken(expression.variableName);
+			return null;
+		}
+
+		@Override
+		public Void visitBlockStatement (Statement.BlockStatement statement) {
+			writeNode(BLOCK, statement);
+			writeStatements(statement.statements);
+			return null;
+		}
+
+		@Override
+		public Void visitClassStatement (Statement.ClassStatement statement) {
+			writeNode(CLASS, statement);
+			writeToken(statement.className);
+			writeExpression(statement.superclass);
+			writeStatements(statement.methods);
+			return null;
+		}
+
+		@Override
+		public Void visitExpressionStatement (Statement.ExpressionStatement statement) {
+			writeNode(EXPRESSION_STATEMENT, statement);
+			writeExpression(statement.expression);
+			return null;
+		}
+
+		@Override
+		public Void visitFunctionStatement (Statement.FunctionStatement statement) {
+			//A declaration reached a second time (a root of a snapshot that is also nested in another root) is
+			//written once, so every reference decodes to the one node the offsets describe
+			Integer offset = nodeOffsets.get(statement);
+			if (offset != null) {
+				write(FUNCTION_REFERENCE);
+				write(offset);
+				return null;
+			}
+
+			writeNode(FUNCTION, statement);
+			writeToken(statement.name);
+			write(statement.params.size());
+			for (Token param : statement.params) {
+				writeToken(param);
+			}
+			writeStatements(statement.body);
+			return null;
+		}
+
+		@Override
+		public Void visitIfStatement (Statement.IfStatement statement) {
+			writeNode(IF, statement);
+			writeExpression(statement.condition);
+			writeStatement(statement.thenBranch);
+			writeStatement(statement.elseBranch);
+			return null;
+		}
+
+		@Override
+		public Void visitPrintStatement (Statement.PrintStatement statement) {
+			writeNode(PRINT, statement);
+			writeExpression(statement.expression);
+			return null;
+		}
+
+		@Override
+		public Void visitReturnStatement (Statement.ReturnStatement statement) {
+			writeNode(RETURN, statement);
+			writeToken(statement.keyword);
+			writeExpression(statement.value);
+			return null;
+		}
+
+		@Override
+		public Void visitWhileStatement (Statement.WhileStatement statement) {
+			writeNode(WHILE, statement);
+			writeToken(statement.keyword);
+			writeExpression(statement.condition);
+			writeStatement(statement.body);
+			return null;
+		}
+
+		@Override
+		public Void visitImportStatement (Statement.ImportStatement statement) {
+			writeNode(IMPORT, statement);
+			writeToken(statement.keyword);
+			writeConstant(statement.path);
+			return null;
+		}
+
+		@Override
+		public Void visitVariableStatement (Statement.VariableStatement statement) {
+			writeNode(VARIABLE_STATEMENT, statement);
+			writeToken(statement.variableName);
+			writeExpression(statement.initializer);
+			return null;
+		}
+	}
+
+	private class Decoder {
+		private final Token[] tokens = new Token[tokenLines.length];
+		private final Object[] nodesByOffset;
+		private int position = 0;
+
+		Decoder (Object[] nodesByOffset) {
+			this.nodesByOffset = nodesByOffset;
+		}
+
+		private int read () {
+			return code[position++];
+		}
+
+		private Token readToken () {
+			int index = read();
+
+			if (tokens[index] == null) {
+				tokens[index] = new Token(TOKEN_TYPES[tokenTypes[index]], tokenLexemes[index], null, tokenLines[index]);
+			}
+
+			return tokens[index];
+		}
+
+		private Object readConstant () {
+			int index = read();
+			return index < 0 ? null : constants[index];
+		}
+
+		List<Statement> readStatements () {
+			int count = read();
+			List<Statement> statements = new ArrayList<>(count);
+
+			for (int i = 0; i < count; i++) {
+				statements.add(readStatement());
+			}
+
+			return statements;
+		}
+
+		private Expression readExpression () {
+			int offset = position;
+			Expression expression = readExpressionNode();
+			nodesByOffset[offset] = expression;
+			return expression;
+		}
+
+		private Expression readExpressionNode () {
+			int kind = read();
+
+			switch (kind) {
+				case NONE:
+					return null;
+				case ASSIGN:
+					return new Expression.AssignExpression(readToken(), readExpression());
+				case BINARY:
+					return new Expression.BinaryExpression(readExpression(), readToken(), readExpression());
+				case CALL: {
+					Expression callee = readExpression();
+					Token paren = readToken();
+					int argumentCount = read();
+					List<Expression> arguments = new ArrayList<>(argumentCount);
+					for (int i = 0; i < argumentCount; i++) {
+						arguments.add(readExpression());
+					}
+					return new Expression.CallExpression(callee, paren, arguments);
+				}
+				case GET:
+					return new Expression.GetExpression(readExpression(), readToken());
+				case SET:
+					return new Expression.SetExpression(readExpression(), readToken(), readExpression());
+				case INDEX:
+					return new Expression.IndexExpression(readExpression(), readToken(), readExpression());
+				case INDEX_SET:
+					return new Expression.IndexSetExpression(readExpression(), readToken(), readExpression(),
+															 readExpression());
+				case SUPER:
+					return new Expression.SuperExpression(readToken(), readToken());
+				case THIS:
+					return new Expression.ThisExpression(readToken());
+				case GROUPING:
+					return new Expression.GroupingExpression(readExpression());
+				case LITERAL:
+					return new Expression.LiteralExpression(readConstant());
+				case LOGICAL:
+					return new Expression.LogicalExpression(readExpression(), readToken(), readExpression());
+				case UNARY:
+					return new Expression.UnaryExpression(readToken(), readExpression());
+				case VARIABLE:
+					return new Expression.VariableExpression(readToken());
+				default:
+					throw new IllegalStateException("Unexpected expression kind: " + kind);
+			}
+		}
+
+		private Statement readStatement () {
+			int offset = position;
+			Statement statement = readStatementNode();
+			nodesByOffset[offset] = statement;
+			return statement;
+		}
+
+		private Statement readStatementNode () {
+			int kind = read();
+
+			switch (kind) {
+				case NONE:
+					return null;
+				case BLOCK:
+					return new Statement.BlockStatement(readStatements());
+				case CLASS: {
+					Token className = readToken();
+					Expression.VariableExpression superclass = (Expression.VariableExpression) readExpression();
+					int methodCount = read();
+					List<Statement.FunctionStatement> methods = new ArrayList<>(methodCount);
+					for (int i = 0; i < methodCount; i++) {
+						methods.add((Statement.FunctionStatement) readStatement());
+					}
+					return new Statement.ClassStatement(className, superclass, methods);
+				}
+				case EXPRESSION_STATEMENT:
+					return new Statement.ExpressionStatement(readExpression());
+				case FUNCTION: {
+					Token name = readToken();
+					int paramCount = read();
+					List<Token> params = new ArrayList<>(paramCount);
+					for (int i = 0; i < paramCount; i++) {
+						params.add(readToken());
+					}
+					return new Statement.FunctionStatement(name, params, readStatements());
+				}
+				case IF:
+					return new Statement.IfStatement(readExpression(), readStatement(), readStatement());
+				case PRINT:
+					return new Statement.PrintStatement(readExpression());
+				case RETURN:
+					return new Statement.ReturnStatement(readToken(), readExpression());
+				case WHILE:
+					return new Statement.WhileStatement(readToken(), readExpression(), readStatement());
+				case VARIABLE_STATEMENT:
+					return new Statement.VariableStatement(readToken(), readExpression());
+				case IMPORT:
+					return new Statement.ImportStatement(readToken(), (String) readConstant());
+				case FUNCTION_REFERENCE: {
+					int offset = read();
+
+					if (offset < 0 || offset >= position
+							|| ! (nodesByOffset[offset] instanceof Statement.FunctionStatement)) {
+						throw new IllegalStateException("Invalid function reference: " + offset);
+					}
+
+					return (Statement) nodesByOffset[offset];
+				}
+				default:
+					throw new IllegalStateException("Unexpected statement kind: " + kind);
+			}
+		}
+	}
+}
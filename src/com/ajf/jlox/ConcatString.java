@@ -0,0 +1,97 @@
+package com.ajf.jlox;
+
+//Lox string produced by '+' once the result is long enough for copying to matter.
+//Each value is a prefix of a StringBuilder. When the left operand is the longest prefix of its builder, the right
+//operand is appended in place, so accumulating a string in a loop is linear instead of quadratic. The characters
+//are flattened into a String only when the value is printed, compared or used as a key.
+final class ConcatString implements CharSequence {
+	private static final int MIN_LENGTH = 64;
+
+	private final StringBuilder builder;
+	private final int length;
+	private String flattened;
+
+	private ConcatString (StringBuilder builder, int length) {
+		this.builder = builder;
+		this.length = length;
+	}
+
+	static boolean isString (Object value) {
+		return value instanceof String || value instanceof ConcatString;
+	}
+
+	//Both operands must satisfy isString. Charges memory for what is actually allocated: an in-place append only
+	//for the builder's growth, a copy for the whole new builder.
+	static Object concat (Object left, Object right, MemoryBudget memory) {
+		CharSequence leftChars = (CharSequence) left;
+		CharSequence rightChars = (CharSequence) right;
+		int resultLength = leftChars.length() + rightChars.length();
+
+		if (left instanceof ConcatString) {
+			ConcatString leftString = (ConcatString) left;
+
+			if (leftString.length == leftString.builder.length()) {
+				int capacity = leftString.builder.capacity();
+				leftString.builder.append(rightChars);
+				memory.charge(MemoryBudget.STRING_BYTES + leftString.builder.capacity() - capacity);
+				return new ConcatString(leftString.builder, resultLength);
+			}
+		}
+
+		if (resultLength < MIN_LENGTH) {
+			memory.charge(MemoryBudget.STRING_BYTES + resultLength);
+			return leftChars.toString() + rightChars;
+		}
+
+		//The left operand is a plain string or an older prefix of its builder, so everything is copied
+		StringBuilder builder = new StringBuilder(resultLength * 2);
+		builder.append(leftChars).append(rightChars);
+		memory.charge(MemoryBudget.STRING_BYTES + builder.capacity());
+		return new ConcatString(builder, resultLength);
+	}
+
+	//Plain value for comparisons and map keys
+	static Object flatten (Object value) {
+		return value instanceof ConcatString ? value.toString() : value;
+	}
+
+	@Override
+	public int length () {
+		return length;
+	}
+
+	@Override
+	public char charAt (int index) {
+		if (index >= length) {
+			throw new IndexOutOfBoundsException(index);
+		}
+
+		return builder.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence (int start, int end) {
+		return toString().subSequence(start, end);
+	}
+
+	@Override
+	public String toString () {
+		if (flattened == null) {
+			flattened = builder.substring(0, length);
+		}
+
+		return flattened;
+	}
+
+	//Only equal to another ConcatString: a String can never equal a ConcatString, so comparisons and map keys must
+	//go through flatten first, as Lox '==', LoxMap and MemoizedFunction do
+	@Override
+	public boolean equals (Object other) {
+		return other instanceof ConcatString && toString().equals(other.toString());
+	}
+
+	@Override
+	public int hashCode () {
+		return toString().hashCode();
+	}
+}
@@ -0,0 +1,74 @@
+package com.ajf.jlox;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Collects compile errors up to a fixed limit instead of printing them as they are found
+public class Diagnostics {
+	private final int limit;
+	private final List<Diagnostic> entries = new ArrayList<>();
+
+	public Diagnostics (int limit) {
+		this.limit = limit;
+	}
+
+	void add (Token token, String message) {
+		if (! isFull()) {
+			entries.add(new Diagnostic(token.line, token, message));
+		}
+	}
+
+	void add (int line, String message) {
+		if (! isFull()) {
+			entries.add(new Diagnostic(line, null, message));
+		}
+	}
+
+	public boolean isFull () {
+		return entries.size() >= limit;
+	}
+
+	public boolean hasErrors () {
+		return ! entries.isEmpty();
+	}
+
+	public List<Diagnostic> getEntries () {
+		return entries;
+	}
+
+	//Writes every diagnostic to stderr in one call, in the same format as Lox.error
+	public void report () {
+		if (entries.isEmpty()) {
+			return;
+		}
+
+		StringBuilder output = new StringBuilder();
+		for (Diagnostic diagnostic : entries) {
+			output.append(diagnostic).append(System.lineSeparator());
+		}
+
+		if (isFull()) {
+			output.append("Stopped after ").append(limit).append(" errors.").append(System.lineSeparator());
+		}
+
+		System.err.print(output);
+	}
+
+	public static class Diagnostic {
+		final int line;
+		private final Token token;
+		final String message;
+
+		Diagnostic (int line, Token token, String message) {
+			this.line = line;
+			this.token = token;
+			this.message = message;
+		}
+
+		@Override
+		public String toString () {
+			String where = token == null ? "" : "at '" + token + "' ";
+			return "[line " + line + "] Error " + where + ": " + message;
+		}
+	}
+}
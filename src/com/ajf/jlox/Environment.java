@@ -1,6 +1,5 @@
 package com.ajf.jlox;
 
-import javax.swing.text.html.parser.AttributeList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,8 +13,22 @@ public class Environment {
 
 	public Environment (Environment enclosingEnvironment) {
 		this.enclosingEnvironment = enclosingEnvironment;
+
+		LoxEvents.environmentsAllocated.increment();
+		LoxEvents.EnvironmentAllocationEvent event = new LoxEvents.EnvironmentAllocationEvent();
+		if (event.shouldCommit()) {
+			event.commit();
+		}
+	}
+
+
+	Environment enclosing () {
+		return enclosingEnvironment;
 	}
 
+	Map<String, Object> variables () {
+		return variables;
+	}
 
 	public void define (String variableName, Object variableValue) {
 		variables.put(variableName, variableValue);
@@ -0,0 +1,93 @@
+package com.ajf.jlox;
+
+//Step and time limits for a script, plus cooperative cancellation from other threads.
+//The interpreter takes a step at every loop iteration and every call. A step only decrements a countdown;
+//limits, the clock and the cancellation flag are checked once the countdown runs out, every CHECK_INTERVAL steps.
+public class ExecutionBudget {
+	private static final int CHECK_INTERVAL = 1024;
+	//Longer limits are clamped, a century or so, so the deadline cannot overflow System.nanoTime arithmetic
+	private static final long MAX_TIME_LIMIT_MILLIS = Long.MAX_VALUE / 4 / 1_000_000L;
+
+	private long stepLimit = Long.MAX_VALUE;
+	private long timeLimitNanos = 0;
+	private volatile boolean cancelled = false;
+
+	private long stepsTaken;
+	private long deadlineNanos;
+	private int interval;
+	private int countdown;
+
+	public ExecutionBudget () {
+		start();
+	}
+
+	public void setStepLimit (long stepLimit) {
+		if (stepLimit < 0) {
+			throw new IllegalArgumentException("Step limit must not be negative.");
+		}
+
+		this.stepLimit = stepLimit;
+	}
+
+	//Zero disables the time limit
+	public void setTimeLimitMillis (long timeLimitMillis) {
+		if (timeLimitMillis < 0) {
+			throw new IllegalArgumentException("Time limit must not be negative.");
+		}
+
+		this.timeLimitNanos = Math.min(timeLimitMillis, MAX_TIME_LIMIT_MILLIS) * 1_000_000L;
+	}
+
+	//Safe to call from any thread, including before the run starts. Cancellation is permanent for this budget, so a
+	//cancel racing with the start of interpret() is not lost; the script stops at its next check.
+	public void cancel () {
+		cancelled = true;
+	}
+
+	public long getStepsTaken () {
+		return stepsTaken + interval - countdown;
+	}
+
+	//Resets the counters and clock for a new run. The cancellation flag is deliberately kept.
+	void start () {
+		stepsTaken = 0;
+		deadlineNanos = System.nanoTime() + timeLimitNanos;
+		resetCountdown();
+
+		//Already cancelled: stop at the first step rather than after a whole interval
+		if (cancelled) {
+			countdown = 1;
+		}
+	}
+
+	void step (Token site) {
+		if (-- countdown == 0) {
+			check(site);
+		}
+	}
+
+	private void check (Token site) {
+		stepsTaken += interval;
+
+		if (cancelled) {
+			throw new RuntimeError(site, "Execution cancelled.");
+		}
+
+		if (stepsTaken > stepLimit) {
+			throw new RuntimeError(site, "Step limit of " + stepLimit + " exceeded.");
+		}
+
+		if (timeLimitNanos != 0 && System.nanoTime() - deadlineNanos > 0) {
+			throw new RuntimeError(site, "Time limit of " + timeLimitNanos / 1_000_000L + " ms exceeded.");
+		}
+
+		resetCountdown();
+	}
+
+	//Shortens the last interval so the step limit is enforced exactly
+	private void resetCountdown () {
+		long remainingSteps = stepLimit - stepsTaken;
+		interval = remainingSteps >= CHECK_INTERVAL ? CHECK_INTERVAL : (int) remainingSteps + 1;
+		countdown = interval;
+	}
+}
@@ -9,6 +9,10 @@ interface Visitor<R> {
  R visitCallExpression(CallExpression expression);
  R visitGetExpression(GetExpression expression);
  R visitSetExpression(SetExpression expression);
+ R visitIndexExpression(IndexExpression expression);
+ R visitIndexSetExpression(IndexSetExpression expression);
+ R visitSuperExpression(SuperExpression expression);
+ R visitThisExpression(ThisExpression expression);
  R visitGroupingExpression(GroupingExpression expression);
  R visitLiteralExpression(LiteralExpression expression);
  R visitLogicalExpression(LogicalExpression expression);
@@ -81,6 +85,58 @@ this.value = value;
 return visitor.visitSetExpression(this);
 }
 }
+static class IndexExpression extends Expression{
+final  Expression object;
+final  Token bracket;
+final  Expression index;
+IndexExpression( Expression object, Token bracket, Expression index) {
+this.object = object;
+this.bracket = bracket;
+this.index = index;
+}
+@Override
+<R>R accept(Visitor<R> visitor){
+return visitor.visitIndexExpression(this);
+}
+}
+static class IndexSetExpression extends Expression{
+final  Expression object;
+final  Token bracket;
+final  Expression index;
+final  Expression value;
+IndexSetExpression( Expression object, Token bracket, Expression index, Expression value) {
+this.object = object;
+this.bracket = bracket;
+this.index = index;
+this.value = value;
+}
+@Override
+<R>R accept(Visitor<R> visitor){
+return visitor.visitIndexSetExpression(this);
+}
+}
+static class SuperExpression extends Expression{
+final  Token keyword;
+final  Token method;
+SuperExpression( Token keyword, Token method) {
+this.keyword = keyword;
+this.method = method;
+}
+@Override
+<R>R accept(Visitor<R> visitor){
+return visitor.visitSuperExpression(this);
+}
+}
+static class ThisExpression extends Expression{
+final  Token keyword;
+ThisExpression( Token keyword) {
+this.keyword = keyword;
+}
+@Override
+<R>R accept(Visitor<R> visitor){
+return visitor.visitThisExpression(this);
+}
+}
 static class GroupingExpression extends Expression{
 final  Expression expression;
 GroupingExpression( Expression expression) {
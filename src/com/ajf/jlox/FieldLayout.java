@@ -0,0 +1,48 @@
+package com.ajf.jlox;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Slot numbers for the fields of one class's instances. Shared by every instance of the class and only ever
+//appended to, so a slot stays valid for the life of the class. Starts with the fields the initializers assign;
+//once MAX_SLOTS names are taken, further fields live in each instance's overflow dictionary instead.
+final class FieldLayout {
+	static final int MAX_SLOTS = 32;
+	static final int ABSENT = - 1;
+
+	private final Map<String, Integer> slots = new HashMap<>();
+
+	FieldLayout (List<String> initialFields) {
+		for (String field : initialFields) {
+			addSlot(field);
+		}
+	}
+
+	int size () {
+		return slots.size();
+	}
+
+	//Field names in slot order
+	String[] names () {
+		String[] names = new String[slots.size()];
+		slots.forEach((name, slot) -> names[slot] = name);
+		return names;
+	}
+
+	int slotOf (String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? ABSENT : slot;
+	}
+
+	//Returns the new slot, or ABSENT when the layout is full
+	int addSlot (String name) {
+		if (slots.size() == MAX_SLOTS) {
+			return ABSENT;
+		}
+
+		int slot = slots.size();
+		slots.put(name, slot);
+		return slot;
+	}
+}
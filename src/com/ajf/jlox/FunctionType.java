@@ -1,5 +1,5 @@
 package com.ajf.jlox;
 
 public enum FunctionType {
-	NONE, METHOD, FUNCTION
+	NONE, METHOD, INITIALIZER, FUNCTION
 }
@@ -0,0 +1,83 @@
+package com.ajf.jlox;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//Top-level environment. Each global name gets a stable slot the first time it is defined or resolved,
+//so resolved reads and writes index an array instead of hashing the name.
+public class GlobalEnvironment extends Environment {
+	private final Map<String, Integer> slotIndexes = new HashMap<>();
+	private Object[] values = new Object[64];
+	private boolean[] defined = new boolean[64];
+	private String[] names = new String[64];
+	private int slotCount = 0;
+
+	//Names used before their definition still get a slot, which stays undefined until the definition runs
+	int slotFor (String variableName) {
+		Integer slot = slotIndexes.get(variableName);
+
+		if (slot == null) {
+			if (slotCount == values.length) {
+				values = Arrays.copyOf(values, slotCount * 2);
+				defined = Arrays.copyOf(defined, slotCount * 2);
+				names = Arrays.copyOf(names, slotCount * 2);
+			}
+
+			slot = slotCount++;
+			slotIndexes.put(variableName, slot);
+			names[slot] = variableName;
+		}
+
+		return slot;
+	}
+
+	int slotCount () {
+		return slotCount;
+	}
+
+	String nameOf (int slot) {
+		return names[slot];
+	}
+
+	boolean isDefined (int slot) {
+		return defined[slot];
+	}
+
+	Object valueAt (int slot) {
+		return values[slot];
+	}
+
+	Object getSlot (int slot, Token variableToken) {
+		if (! defined[slot]) {
+			throw new RuntimeError(variableToken, "Undefined variable during get '" + variableToken.lexeme + "'.");
+		}
+
+		return values[slot];
+	}
+
+	void assignSlot (int slot, Token variableToken, Object value) {
+		if (! defined[slot]) {
+			throw new RuntimeError(variableToken, "Undefined variable during assign '" + variableToken.lexeme + "'.");
+		}
+
+		values[slot] = value;
+	}
+
+	@Override
+	public void define (String variableName, Object variableValue) {
+		int slot = slotFor(variableName);
+		values[slot] = variableValue;
+		defined[slot] = true;
+	}
+
+	@Override
+	public Object getVariable (Token variableToken) {
+		return getSlot(slotFor(variableToken.lexeme), variableToken);
+	}
+
+	@Override
+	public void assign (Token variableName, Object value) {
+		assignSlot(slotFor(variableName.lexeme), variableName, value);
+	}
+}
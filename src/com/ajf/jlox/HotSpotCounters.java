@@ -0,0 +1,291 @@
+package com.ajf.jlox;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//Execution counts per AST node, per Lox function and per class property, reported at exit by --hotspots.
+//Every node execution is counted but only one in SAMPLE_PERIOD is timed, and the total time is extrapolated.
+public class HotSpotCounters {
+	private static final int SAMPLE_PERIOD = 64;
+	private static final int REPORT_LIMIT = 10;
+
+	private final Map<Object, NodeCounter> nodeCounters = new IdentityHashMap<>();
+	private final Map<Statement.FunctionStatement, long[]> callCounts = new IdentityHashMap<>();
+	private final Map<LoxClass, Map<String, long[]>> propertyAccesses = new IdentityHashMap<>();
+
+	void execute (Statement statement, Interpreter interpreter) {
+		NodeCounter counter = counterFor(statement);
+
+		if (++ counter.executions % SAMPLE_PERIOD != 0) {
+			statement.accept(interpreter);
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			statement.accept(interpreter);
+		} finally {
+			counter.addSample(System.nanoTime() - start);
+		}
+	}
+
+	Object evaluate (Expression expression, Interpreter interpreter) {
+		NodeCounter counter = counterFor(expression);
+
+		if (++ counter.executions % SAMPLE_PERIOD != 0) {
+			return expression.accept(interpreter);
+		}
+
+		long start = System.nanoTime();
+		try {
+			return expression.accept(interpreter);
+		} finally {
+			counter.addSample(System.nanoTime() - start);
+		}
+	}
+
+	void recordCall (Statement.FunctionStatement declaration) {
+		callCounts.computeIfAbsent(declaration, key -> new long[1])[0]++;
+	}
+
+	void recordPropertyAccess (LoxClass loxClass, String propertyName) {
+		propertyAccesses.computeIfAbsent(loxClass, key -> new HashMap<>())
+						.computeIfAbsent(propertyName, key -> new long[1])[0]++;
+	}
+
+	private NodeCounter counterFor (Object node) {
+		NodeCounter counter = nodeCounters.get(node);
+
+		if (counter == null) {
+			counter = new NodeCounter(node instanceof Statement);
+			nodeCounters.put(node, counter);
+		}
+
+		return counter;
+	}
+
+	public void report (PrintStream output) {
+		output.println("== Hottest lines ==");
+		output.println(String.format("%8s %14s %14s %12s", "line", "statements", "expressions", "est. ms"));
+		for (LineCounter line : hottestLines()) {
+			output.println(String.format("%8d %14d %14d %12.2f", line.line, line.statementExecutions,
+										 line.expressionEvaluations, line.estimatedNanos / 1e6));
+		}
+
+		output.println("== Most called functions ==");
+		List<Map.Entry<Statement.FunctionStatement, long[]>> calls = new ArrayList<>(callCounts.entrySet());
+		calls.sort((left, right) -> Long.compare(right.getValue()[0], left.getValue()[0]));
+		for (Map.Entry<Statement.FunctionStatement, long[]> call : calls.subList(0, Math.min(REPORT_LIMIT, calls.size()))) {
+			Token name = call.getKey().name;
+			output.println(String.format("%14d  %s (line %d)", call.getValue()[0], name.lexeme, name.line));
+		}
+
+		output.println("== Most accessed properties ==");
+		for (Map.Entry<LoxClass, Map<String, long[]>> loxClass : propertyAccesses.entrySet()) {
+			List<Map.Entry<String, long[]>> properties = new ArrayList<>(loxClass.getValue().entrySet());
+			properties.sort((left, right) -> Long.compare(right.getValue()[0], left.getValue()[0]));
+
+			for (Map.Entry<String, long[]> property : properties.subList(0, Math.min(REPORT_LIMIT, properties.size()))) {
+				output.println(String.format("%14d  %s.%s", property.getValue()[0], loxClass.getKey(), property.getKey()));
+			}
+		}
+	}
+
+	private List<LineCounter> hottestLines () {
+		Map<Integer, LineCounter> lines = new TreeMap<>();
+		NodeLines nodeLines = new NodeLines();
+
+		for (Map.Entry<Object, NodeCounter> entry : nodeCounters.entrySet()) {
+			Object node = entry.getKey();
+			NodeCounter counter = entry.getValue();
+
+			Integer line = counter.isStatement ? ((Statement) node).accept(nodeLines) : ((Expression) node).accept(nodeLines);
+			if (line == null) {
+				continue;
+			}
+
+			LineCounter lineCounter = lines.computeIfAbsent(line, LineCounter::new);
+			if (counter.isStatement) {
+				lineCounter.statementExecutions += counter.executions;
+				lineCounter.estimatedNanos = Math.max(lineCounter.estimatedNanos, counter.estimatedNanos());
+			} else {
+				lineCounter.expressionEvaluations += counter.executions;
+			}
+		}
+
+		List<LineCounter> hottest = new ArrayList<>(lines.values());
+		hottest.sort((left, right) -> Long.compare(right.executions(), left.executions()));
+		return hottest.subList(0, Math.min(REPORT_LIMIT, hottest.size()));
+	}
+
+	private static class NodeCounter {
+		final boolean isStatement;
+		long executions;
+		long samples;
+		long sampledNanos;
+
+		NodeCounter (boolean isStatement) {
+			this.isStatement = isStatement;
+		}
+
+		void addSample (long nanos) {
+			samples++;
+			sampledNanos += nanos;
+		}
+
+		long estimatedNanos () {
+			return samples == 0 ? 0 : sampledNanos * executions / samples;
+		}
+	}
+
+	private static class LineCounter {
+		final int line;
+		long statementExecutions;
+		long expressionEvaluations;
+		long estimatedNanos;
+
+		LineCounter (int line) {
+			this.line = line;
+		}
+
+		long executions () {
+			return statementExecutions + expressionEvaluations;
+		}
+	}
+
+	//Finds the source line of a node from the first token it or one of its children holds
+	private static class NodeLines implements Expression.Visitor<Integer>, Statement.Visitor<Integer> {
+		private Integer lineOf (Expression expression) {
+			return expression == null ? null : expression.accept(this);
+		}
+
+		private Integer lineOf (Statement statement) {
+			return statement == null ? null : statement.accept(this);
+		}
+
+		@Override
+		public Integer visitAssignExpression (Expression.AssignExpression expression) {
+			return expression.variableName.line;
+		}
+
+		@Override
+		public Integer visitBinaryExpression (Expression.BinaryExpression expression) {
+			return expression.operator.line;
+		}
+
+		@Override
+		public Integer visitCallExpression (Expression.CallExpression expression) {
+			return expression.paren.line;
+		}
+
+		@Override
+		public Integer visitGetExpression (Expression.GetExpression expression) {
+			return expression.className.line;
+		}
+
+		@Override
+		public Integer visitSetExpression (Expression.SetExpression expression) {
+			return expression.name.line;
+		}
+
+		@Override
+		public Integer visitIndexExpression (Expression.IndexExpression expression) {
+			return expression.bracket.line;
+		}
+
+		@Override
+		public Integer visitIndexSetExpression (Expression.IndexSetExpression expression) {
+			return expression.bracket.line;
+		}
+
+		@Override
+		public Integer visitSuperExpression (Expression.SuperExpression expression) {
+			return expression.keyword.line;
+		}
+
+		@Override
+		public Integer visitThisExpression (Expression.ThisExpression expression) {
+			return expression.keyword.line;
+		}
+
+		@Override
+		public Integer visitGroupingExpression (Expression.GroupingExpression expression) {
+			return lineOf(expression.expression);
+		}
+
+		@Override
+		public Integer visitLiteralExpression (Expression.LiteralExpression expression) {
+			return null;
+		}
+
+		@Override
+		public Integer visitLogicalExpression (Expression.LogicalExpression expression) {
+			return expression.operator.line;
+		}
+
+		@Override
+		public Integer visitUnaryExpression (Expression.UnaryExpression expression) {
+			return expression.operator.line;
+		}
+
+		@Override
+		public Integer visitVariableExpression (Expression.VariableExpression expression) {
+			return expression.variableName.line;
+		}
+
+		@Override
+		public Integer visitBlockStatement (Statement.BlockStatement statement) {
+			return null;
+		}
+
+		@Override
+		public Integer visitClassStatement (Statement.ClassStatement statement) {
+			return statement.className.line;
+		}
+
+		@Override
+		public Integer visitExpressionStatement (Statement.ExpressionStatement statement) {
+			return lineOf(statement.expression);
+		}
+
+		@Override
+		public Integer visitFunctionStatement (Statement.FunctionStatement statement) {
+			return statement.name.line;
+		}
+
+		@Override
+		public Integer visitIfStatement (Statement.IfStatement statement) {
+			return lineOf(statement.condition);
+		}
+
+		@Override
+		public Integer visitPrintStatement (Statement.PrintStatement statement) {
+			return lineOf(statement.expression);
+		}
+
+		@Override
+		public Integer visitReturnStatement (Statement.ReturnStatement statement) {
+			return statement.keyword.line;
+		}
+
+		@Override
+		public Integer visitWhileStatement (Statement.WhileStatement statement) {
+			return statement.keyword.line;
+		}
+
+		@Override
+		public Integer visitImportStatement (Statement.ImportStatement statement) {
+			return statement.keyword.line;
+		}
+
+		@Override
+		public Integer visitVariableStatement (Statement.VariableStatement statement) {
+			return statement.variableName.line;
+		}
+	}
+}
@@ -1,32 +1,46 @@
 package com.ajf.jlox;
 
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Void> {
-	final Environment globals = new Environment();
+public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Void>, ResolutionSink {
+	final GlobalEnvironment globals = new GlobalEnvironment();
+	final MemoryBudget memory = new MemoryBudget();
+	final ExecutionBudget budget = new ExecutionBudget();
+	//Resolved variables: a scope distance for locals, or -(slot + 1) for globals
 	private final Map<Expression, Integer> locals = new HashMap<>();
+	//Fields each class's init method assigns through 'this', used to size new instances
+	private final Map<Statement.ClassStatement, List<String>> initializerFields = new HashMap<>();
+	private final Map<Statement.ImportStatement, Path> imports = new HashMap<>();
+	//Modules this interpreter has run to completion; each runs at most once
+	private final Set<Path> loadedModules = new HashSet<>();
+	//Modules whose import is still executing. Importing one of these again is a cycle and does nothing
+	private final Set<Path> loadingModules = new HashSet<>();
+	//Natives defined by the host rather than by Lox code, which snapshots refer to by name
+	private final Map<String, Object> builtins = new HashMap<>();
 	private Environment environment = globals;
+	LoxProfiler profiler;
+	HotSpotCounters hotSpots;
+	OutputSink output;
+	private final NumberFormatter numberFormatter = new NumberFormatter();
+	//Closing paren of the call being entered, so natives can report errors at the call's line
+	Token callSite;
 
 	Interpreter () {
-		globals.define("clock", new LoxCallable() {
-			@Override
-			public Object call (Interpreter interpreter, List<Object> arguments) {
-				return (double) System.currentTimeMillis() / 1000.0;
-			}
-
-			@Override
-			public int arity () {
-				return 0;
-			}
+		this(OutputSink.standardOutput());
+	}
 
-			@Override
-			public String toString () {
-				return "<native fn>";
-			}
-		});
+	Interpreter (OutputSink output) {
+		this.output = output;
+		defineNatives(MethodHandles.lookup(), StandardLibrary.class);
 	}
 
 
@@ -34,6 +48,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	public Object visitBinaryExpression (Expression.BinaryExpression expression) {
 		Object left = evaluateExpression(expression.left);
 		Object right = evaluateExpression(expression.right);
+		markLine(expression.operator);
 
 		switch (expression.operator.type) {
 			case MINUS:
@@ -45,8 +60,10 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 			case PLUS:
 				if (left instanceof Double && right instanceof Double) {
 					return (Double) left + (Double) right;
-				} else if (left instanceof String && right instanceof String) {
-					return (String) left + (String) right;
+				} else if (ConcatString.isString(left) && ConcatString.isString(right)) {
+					Object result = ConcatString.concat(left, right, memory);
+					memory.check(expression.operator);
+					return result;
 				}
 
 				throw new RuntimeError(expression.operator, "Operands must be two numbers or two strings");
@@ -76,35 +93,139 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
 	@Override
 	public Object visitCallExpression (Expression.CallExpression expression) {
-		Object callee = evaluateExpression(expression.callee);
+		//Method calls hand the receiver straight to the method rather than allocating a BoundMethod per call
+		if (expression.callee instanceof Expression.GetExpression) {
+			Expression.GetExpression get = (Expression.GetExpression) expression.callee;
+			Object object = evaluateExpression(get.object);
+
+			if (object instanceof LoxInstance && ! ((LoxInstance) object).hasField(get.className.lexeme)) {
+				LoxInstance instance = (LoxInstance) object;
+				recordPropertyAccess(instance, get.className);
+				LoxFunction method = instance.getLoxClass().findMethod(get.className.lexeme);
+
+				if (method == null) {
+					throw new RuntimeError(get.className, "Undefined property '" + get.className.lexeme + "'.");
+				}
 
-		List<Object> arguments = new ArrayList<>();
-		for (Expression arg : expression.arguments) {
-			arguments.add(evaluateExpression(arg));
+				return callMethod(method, instance, expression);
+			}
+
+			if (object instanceof LoxCollection) {
+				return callCollectionMethod((LoxCollection) object, get.className, expression);
+			}
+
+			return callFunction(getProperty(object, get.className), expression);
+		} else if (expression.callee instanceof Expression.SuperExpression) {
+			Expression.SuperExpression superExpression = (Expression.SuperExpression) expression.callee;
+			int distance = locals.get(superExpression);
+			return callMethod(findSuperMethod(superExpression, distance), environment.getAt(distance - 1, "this"),
+							  expression);
+		}
+
+		return callFunction(evaluateExpression(expression.callee), expression);
+	}
+
+	private Object callFunction (Object callee, Expression.CallExpression expression) {
+		if (callee instanceof NativeFunction && expression.arguments.size() <= NativeFunction.MAX_SPECIALIZED_ARITY) {
+			return callNative((NativeFunction) callee, expression);
 		}
 
+		List<Object> arguments = evaluateArguments(expression);
+
 		if (! (callee instanceof LoxCallable)) {
 			throw new RuntimeError(expression.paren, "Can only call functions and classes");
 		}
 
 		LoxCallable function = (LoxCallable) callee;
+		checkCall(function.arity(), arguments.size(), expression.paren);
+		return function.call(this, arguments);
+	}
 
-		if (arguments.size() != function.arity()) {
-			throw new RuntimeError(expression.paren,
-								   "Expected " + function.arity() + " arguments. Received " + arguments.size() + " arguments.");
+	//Short native calls pass their arguments directly instead of through a list
+	private Object callNative (NativeFunction function, Expression.CallExpression expression) {
+		List<Expression> arguments = expression.arguments;
+		Object first = arguments.size() > 0 ? evaluateExpression(arguments.get(0)) : null;
+		Object second = arguments.size() > 1 ? evaluateExpression(arguments.get(1)) : null;
+		Object third = arguments.size() > 2 ? evaluateExpression(arguments.get(2)) : null;
+		checkCall(function.arity(), arguments.size(), expression.paren);
+
+		switch (arguments.size()) {
+			case 0:
+				return function.call0(this);
+			case 1:
+				return function.call1(this, first);
+			case 2:
+				return function.call2(this, first, second);
+			default:
+				return function.call3(this, first, second, third);
 		}
+	}
 
-		return function.call(this, arguments);
+	private Object callMethod (LoxFunction method, Object receiver, Expression.CallExpression expression) {
+		List<Object> arguments = evaluateArguments(expression);
+		checkCall(method.arity(), arguments.size(), expression.paren);
+		return method.callMethod(this, receiver, arguments);
+	}
+
+	//List and Map methods take at most one argument, so calls pass it directly and allocate nothing
+	private Object callCollectionMethod (LoxCollection collection, Token name, Expression.CallExpression expression) {
+		int arity = collection.methodArity(name);
+		List<Expression> arguments = expression.arguments;
+
+		Object argument = null;
+		for (int i = 0; i < arguments.size(); i++) {
+			Object value = evaluateExpression(arguments.get(i));
+
+			if (i == 0) {
+				argument = value;
+			}
+		}
+
+		checkCall(arity, arguments.size(), expression.paren);
+		return collection.callMethod(this, name, argument);
+	}
+
+	private List<Object> evaluateArguments (Expression.CallExpression expression) {
+		List<Object> arguments = new ArrayList<>();
+		for (Expression arg : expression.arguments) {
+			arguments.add(evaluateExpression(arg));
+		}
+
+		return arguments;
+	}
+
+	private void checkCall (int arity, int argumentCount, Token paren) {
+		markLine(paren);
+		callSite = paren;
+
+		if (argumentCount != arity) {
+			throw new RuntimeError(paren, "Expected " + arity + " arguments. Received " + argumentCount + " arguments.");
+		}
+
+		memory.check(paren);
+		budget.step(paren);
 	}
 
 	@Override
 	public Object visitGetExpression (Expression.GetExpression expression) {
-		Object object = evaluateExpression(expression.object);
+		return getProperty(evaluateExpression(expression.object), expression.className);
+	}
+
+	private Object getProperty (Object object, Token name) {
 		if (object instanceof LoxInstance) {
-			return ((LoxInstance) object).get(expression.className);
+			recordPropertyAccess((LoxInstance) object, name);
+			return ((LoxInstance) object).get(name);
+		} else if (object instanceof LoxCollection) {
+			return ((LoxCollection) object).get(name);
 		}
 
-		throw new RuntimeError(expression.className, "Only instances have properties");
+		throw new RuntimeError(name, "Only instances have properties");
+	}
+
+	private void recordPropertyAccess (LoxInstance instance, Token name) {
+		if (hotSpots != null) {
+			hotSpots.recordPropertyAccess(instance.getLoxClass(), name.lexeme);
+		}
 	}
 
 	@Override
@@ -115,12 +236,77 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 			throw new RuntimeError(expression.name, "Only instances have fields");
 		}
 
+		recordPropertyAccess((LoxInstance) object, expression.name);
+
 		Object value = evaluateExpression(expression.value);
-		((LoxInstance) object).set(expression.name, value);
+		if (((LoxInstance) object).set(expression.name, value)) {
+			memory.charge(MemoryBudget.FIELD_BYTES, expression.name);
+		}
 		return value;
 
 	}
 
+	@Override
+	public Object visitIndexExpression (Expression.IndexExpression expression) {
+		Object object = evaluateExpression(expression.object);
+		Object index = evaluateExpression(expression.index);
+
+		if (object instanceof LoxList) {
+			LoxList list = (LoxList) object;
+			return list.get(list.checkIndex(expression.bracket, index));
+		} else if (object instanceof LoxMap) {
+			return ((LoxMap) object).get(index);
+		}
+
+		throw new RuntimeError(expression.bracket, "Only lists and maps can be indexed");
+	}
+
+	@Override
+	public Object visitIndexSetExpression (Expression.IndexSetExpression expression) {
+		Object object = evaluateExpression(expression.object);
+		Object index = evaluateExpression(expression.index);
+
+		if (object instanceof LoxList) {
+			LoxList list = (LoxList) object;
+			//Checked after the value, which may itself change the list's size, e.g. 'xs[i] = xs.pop()'
+			Object value = evaluateExpression(expression.value);
+			list.set(list.checkIndex(expression.bracket, index), value);
+			return value;
+		} else if (object instanceof LoxMap) {
+			Object value = evaluateExpression(expression.value);
+
+			if (((LoxMap) object).put(index, value)) {
+				memory.charge(MemoryBudget.ENTRY_BYTES, expression.bracket);
+			}
+			return value;
+		}
+
+		throw new RuntimeError(expression.bracket, "Only lists and maps can be indexed");
+	}
+
+	@Override
+	public Object visitSuperExpression (Expression.SuperExpression expression) {
+		int distance = locals.get(expression);
+		//'this' lives in the method's call environment, one scope inside the one holding 'super'
+		return new BoundMethod(environment.getAt(distance - 1, "this"), findSuperMethod(expression, distance));
+	}
+
+	private LoxFunction findSuperMethod (Expression.SuperExpression expression, int distance) {
+		LoxClass superclass = (LoxClass) environment.getAt(distance, "super");
+		LoxFunction method = superclass.findMethod(expression.method.lexeme);
+
+		if (method == null) {
+			throw new RuntimeError(expression.method, "Undefined property '" + expression.method.lexeme + "'.");
+		}
+
+		return method;
+	}
+
+	@Override
+	public Object visitThisExpression (Expression.ThisExpression expression) {
+		return environment.getAt(locals.get(expression), "this");
+	}
+
 	@Override
 	public Object visitGroupingExpression (Expression.GroupingExpression expression) {
 		return evaluateExpression(expression.expression);
@@ -170,14 +356,25 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	private Object lookupVariable (Token variableToken, Expression.VariableExpression expression) {
 		Integer distance = locals.get(expression);
 
-		if (distance != null) {
+		if (distance == null) {
+			return globals.getVariable(variableToken);
+		} else if (distance >= 0) {
 			return environment.getAt(distance, variableToken.lexeme);
 		} else {
-			return globals.getVariable(variableToken);
+			return globals.getSlot(- distance - 1, variableToken);
+		}
+	}
+
+	private void markLine (Token token) {
+		if (profiler != null) {
+			profiler.setLine(token.line);
 		}
 	}
 
 	private boolean isEqual (Object left, Object right) {
+		left = ConcatString.flatten(left);
+		right = ConcatString.flatten(right);
+
 		if (left == null && right == null) {
 			return true;
 		} else if (left == null) {
@@ -215,20 +412,34 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	}
 
 	private Object evaluateExpression (Expression expressionToEvaluate) {
+		if (hotSpots != null) {
+			return hotSpots.evaluate(expressionToEvaluate, this);
+		}
+
 		return expressionToEvaluate.accept(this);
 	}
 
 	public void interpret (List<Statement> statements) {
+		budget.start();
+
 		try {
 			for (Statement statement : statements) {
 				execute(statement);
 			}
 		} catch (RuntimeError error) {
+			output.flush();
 			Lox.runtimeError(error);
+		} finally {
+			output.flush();
 		}
 	}
 
 	private void execute (Statement statement) {
+		if (hotSpots != null) {
+			hotSpots.execute(statement, this);
+			return;
+		}
+
 		statement.accept(this);
 	}
 
@@ -236,13 +447,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 		if (value == null) {
 			return "nil";
 		} else if (value instanceof Double) {
-			String text = value.toString();
-
-			if (text.endsWith(".0")) {
-				text = text.substring(0, text.length() - 2);
-			}
-
-			return text;
+			return new String(numberFormatter.buffer(), 0, numberFormatter.format((Double) value));
 		} else {
 			return value.toString();
 		}
@@ -251,21 +456,61 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
 	@Override
 	public Void visitBlockStatement (Statement.BlockStatement statement) {
-		executeBlock(statement.statements, new Environment(environment));
+		long frameMark = memory.frameMark();
+		memory.chargeFrame(MemoryBudget.ENVIRONMENT_BYTES);
+
+		try {
+			executeBlock(statement.statements, new Environment(environment));
+		} finally {
+			memory.releaseFrames(frameMark);
+		}
 		return null;
 	}
 
 	@Override
 	public Void visitClassStatement (Statement.ClassStatement statement) {
+		LoxClass superclass = null;
+		if (statement.superclass != null) {
+			Object superclassValue = evaluateExpression(statement.superclass);
+
+			if (! (superclassValue instanceof LoxClass)) {
+				throw new RuntimeError(statement.superclass.variableName, "Superclass must be a class.");
+			}
+
+			superclass = (LoxClass) superclassValue;
+		}
+
 		environment.define(statement.className.lexeme, null);
-		Map<String, LoxFunction> methods = new HashMap<>();
+
+		Environment classEnvironment = environment;
+		if (superclass != null) {
+			memory.charge(MemoryBudget.ENVIRONMENT_BYTES);
+			environment = new Environment(environment);
+			environment.define("super", superclass);
+		}
+
+		//Inherited methods are copied in first so the class's own methods override them; lookups then never
+		//walk the superclass chain. Classes cannot change after definition, so the table never goes stale.
+		Map<String, LoxFunction> methods = superclass == null ? new HashMap<>() : superclass.copyMethods();
 		for (Statement.FunctionStatement method : statement.methods) {
-			LoxFunction function = new LoxFunction(method, environment);
+			LoxFunction function = new LoxFunction(method, environment, true);
 			methods.put(method.name.lexeme, function);
 		}
 
-		LoxClass newClass = new LoxClass(statement.className.lexeme, methods);
+		List<String> fieldNames = new ArrayList<>();
+		if (superclass != null) {
+			fieldNames.addAll(superclass.initializerFields);
+		}
+
+		for (String field : initializerFields.getOrDefault(statement, List.of())) {
+			if (! fieldNames.contains(field)) {
+				fieldNames.add(field);
+			}
+		}
+
+		LoxClass newClass = new LoxClass(statement.className.lexeme, superclass, methods, fieldNames);
 
+		environment = classEnvironment;
 		environment.assign(statement.className, newClass);
 		return null;
 	}
@@ -293,6 +538,13 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	@Override
 	public Void visitFunctionStatement (Statement.FunctionStatement statement) {
 		LoxFunction function = new LoxFunction(statement, environment);
+		chargeVariable(statement.name);
+
+		//A local function keeps its defining environment alive after the frame ends
+		if (environment != globals) {
+			memory.charge(MemoryBudget.ENVIRONMENT_BYTES, statement.name);
+		}
+
 		environment.define(statement.name.lexeme, function);
 		return null;
 	}
@@ -310,12 +562,21 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	@Override
 	public Void visitPrintStatement (Statement.PrintStatement statement) {
 		Object value = evaluateExpression(statement.expression);
-		System.out.println(stringify(value));
+
+		if (value instanceof Double) {
+			int length = numberFormatter.format((Double) value);
+			output.printLine(numberFormatter.buffer(), 0, length);
+		} else {
+			output.printLine(stringify(value));
+		}
+
 		return null;
 	}
 
 	@Override
 	public Void visitReturnStatement (Statement.ReturnStatement statement) {
+		markLine(statement.keyword);
+
 		Object value = null;
 		if (statement.value != null) {
 			value = evaluateExpression(statement.value);
@@ -328,37 +589,135 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	public Void visitWhileStatement (Statement.WhileStatement statement) {
 		while (isTruthy(evaluateExpression(statement.condition))) {
 			execute(statement.body);
+			budget.step(statement.keyword);
+		}
+		return null;
+	}
+
+	//Modules load on the first import that executes, then run in the global scope
+	@Override
+	public Void visitImportStatement (Statement.ImportStatement statement) {
+		Path path = imports.get(statement);
+
+		if (loadedModules.contains(path) || ! loadingModules.add(path)) {
+			return null;
+		}
+
+		//A module that fails to load or run is not marked loaded, so a later import tries it again
+		try {
+			ModuleCache.Module module = ModuleCache.load(path, statement.keyword);
+			module.resolution.applyTo(this);
+			executeBlock(module.statements, globals);
+			loadedModules.add(path);
+		} finally {
+			loadingModules.remove(path);
 		}
 		return null;
 	}
 
 	@Override
 	public Void visitVariableStatement (Statement.VariableStatement statement) {
+		markLine(statement.variableName);
+
 		Object value = null;
 		if (statement.initializer != null) {
 			value = evaluateExpression(statement.initializer);
 		}
 
+		chargeVariable(statement.variableName);
 		environment.define(statement.variableName.lexeme, value);
 		return null;
 	}
 
+	//Globals are retained; locals belong to the frame of the call or block defining them
+	private void chargeVariable (Token name) {
+		if (environment == globals) {
+			memory.charge(MemoryBudget.VARIABLE_BYTES, name);
+		} else {
+			memory.chargeFrame(MemoryBudget.VARIABLE_BYTES);
+			memory.check(name);
+		}
+	}
+
 	@Override
 	public Object visitAssignExpression (Expression.AssignExpression expression) {
 		Object value = evaluateExpression(expression.value);
+		markLine(expression.variableName);
 
 		Integer distance = locals.get(expression);
-		if (distance != null) {
+		if (distance == null) {
+			globals.assign(expression.variableName, value);
+		} else if (distance >= 0) {
 			environment.assignAt(distance, expression.variableName, value);
 		} else {
-			globals.assign(expression.variableName, value);
+			globals.assignSlot(- distance - 1, expression.variableName, value);
 		}
 
 		return value;
 	}
 
-	void resolve (Expression expression, int depth) {
+	//Binds each public static method of the library as a global native function of the same name
+	public void defineNatives (MethodHandles.Lookup lookup, Class<?> library) {
+		NativeFunction.bindAll(lookup, library, this::defineBuiltin);
+	}
+
+	public void defineNative (String name, MethodHandle target) {
+		defineBuiltin(name, NativeFunction.bind(name, target));
+	}
+
+	private void defineBuiltin (String name, Object value) {
+		builtins.put(name, value);
+		globals.define(name, value);
+	}
+
+	Map<String, Object> builtins () {
+		return builtins;
+	}
+
+	//Writes the globals and everything reachable from them to an image that restore can load into another
+	//interpreter, see InterpreterSnapshot
+	public void snapshot (Path path) throws IOException {
+		InterpreterSnapshot.write(this, path);
+	}
+
+	public void restore (Path path) throws IOException {
+		InterpreterSnapshot.restore(path, this);
+	}
+
+	Integer resolvedDistance (Expression expression) {
+		return locals.get(expression);
+	}
+
+	List<String> resolvedInitializerFields (Statement.ClassStatement statement) {
+		return initializerFields.get(statement);
+	}
+
+	Path resolvedImport (Statement.ImportStatement statement) {
+		return imports.get(statement);
+	}
+
+	Set<Path> loadedModules () {
+		return loadedModules;
+	}
+
+	@Override
+	public void resolve (Expression expression, int depth) {
 		locals.put(expression, depth);
 	}
+
+	@Override
+	public void resolveInitializerFields (Statement.ClassStatement statement, List<String> fields) {
+		initializerFields.put(statement, fields);
+	}
+
+	@Override
+	public void resolveImport (Statement.ImportStatement statement, Path path) {
+		imports.put(statement, path);
+	}
+
+	@Override
+	public void resolveGlobal (Expression expression, Token variableToken) {
+		locals.put(expression, - globals.slotFor(variableToken.lexeme) - 1);
+	}
 }
 
@@ -0,0 +1,600 @@
+package com.ajf.jlox;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Binary image of an interpreter's globals and everything reachable from them: functions with their closures,
+//classes, instances, lists and maps, plus the AST of every reachable function and the resolver data for its nodes.
+//Restoring maps the file and rebuilds the objects in a single pass, so a long prelude runs once and its results are
+//loaded into each later interpreter instead of being computed again.
+//
+//The header identifies the TokenType constants, since the program stores token types by ordinal. Then come the
+//program (CompactProgram.writeTo) with every function declaration written once, the resolver data keyed by node
+//code offset, the modules already imported, and an object table. In that table an object's constructor arguments
+//only refer to earlier objects. Next come the mutable contents of environments, instances, lists and maps, which
+//may refer to any object, and finally the globals. Natives are stored by name and taken from the restoring
+//interpreter. Memoized functions come back with an empty cache.
+final class InterpreterSnapshot {
+	//"JLXS"
+	private static final int MAGIC = 0x4A4C5853;
+	//Version 2 added FUNCTION_REFERENCE to the program encoding
+	private static final int VERSION = 2;
+
+	private static final byte NIL = 0;
+	private static final byte FALSE = 1;
+	private static final byte TRUE = 2;
+	private static final byte NUMBER = 3;
+	private static final byte STRING = 4;
+	private static final byte OBJECT = 5;
+	private static final byte BUILTIN = 6;
+
+	private static final byte ENVIRONMENT = 0;
+	private static final byte FUNCTION = 1;
+	private static final byte CLASS = 2;
+	private static final byte INSTANCE = 3;
+	private static final byte LIST = 4;
+	private static final byte MAP = 5;
+	private static final byte BOUND_METHOD = 6;
+	private static final byte NATIVE_METHOD = 7;
+	private static final byte MEMOIZED_FUNCTION = 8;
+
+	//Stands for the global environment, or for no superclass, where an object index is expected
+	private static final int NO_OBJECT = - 1;
+
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	private InterpreterSnapshot () {
+	}
+
+	//Changes when a token type is added, removed, renamed or moved
+	private static int tokenTypesHash () {
+		int hash = 1;
+		for (TokenType type : TOKEN_TYPES) {
+			hash = 31 * hash + type.name().hashCode();
+		}
+		return hash;
+	}
+
+	static void write (Interpreter interpreter, Path path) throws IOException {
+		new Writer(interpreter).write(path);
+	}
+
+	//Defines the snapshot's globals in the interpreter, which should not have run any code yet
+	static void restore (Path path, Interpreter interpreter) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			new Reader(image, interpreter).read();
+		} catch (RuntimeException exception) {
+			//Truncated or damaged data: underflows, bad indexes or lengths, unexpected tags and node kinds
+			throw new IOException("Corrupt snapshot '" + path + "'.", exception);
+		}
+	}
+
+	private static Token nameToken (String name) {
+		return new Token(TokenType.IDENTIFIER, name, null, 0);
+	}
+
+	private static final class Writer {
+		private final Interpreter interpreter;
+		private final Map<Object, String> builtinNames = new IdentityHashMap<>();
+		private final Map<Object, Integer> objectIndexes = new IdentityHashMap<>();
+		private final List<Object> objects = new ArrayList<>();
+		//Registered objects whose contents have not been visited yet
+		private final ArrayDeque<Object> unvisited = new ArrayDeque<>();
+		private final List<Statement.FunctionStatement> declarations = new ArrayList<>();
+		private final Map<Object, Integer> nodeOffsets = new HashMap<>();
+		private DataOutputStream output;
+
+		Writer (Interpreter interpreter) {
+			this.interpreter = interpreter;
+			interpreter.builtins().forEach((name, value) -> builtinNames.putIfAbsent(value, name));
+		}
+
+		void write (Path path) throws IOException {
+			GlobalEnvironment globals = interpreter.globals;
+			for (int slot = 0; slot < globals.slotCount(); slot++) {
+				if (globals.isDefined(slot)) {
+					visitValue(globals.valueAt(slot));
+				}
+			}
+
+			while (! unvisited.isEmpty()) {
+				visitContents(unvisited.poll());
+			}
+
+			CompactProgram program = CompactProgram.encode(declarations, nodeOffsets);
+
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(path), OutputSink.BUFFER_SIZE))) {
+				this.output = output;
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(TOKEN_TYPES.length);
+				output.writeInt(tokenTypesHash());
+				program.writeTo(output);
+				writeResolution();
+				writeObjects();
+				writeGlobals();
+			}
+		}
+
+		private void visitValue (Object value) {
+			if (value == null || value instanceof Boolean || value instanceof Double || ConcatString.isString(value)
+					|| builtinNames.containsKey(value) || objectIndexes.containsKey(value)) {
+				return;
+			}
+
+			//Objects a constructor needs are registered first, so the reader can build the table in order
+			if (value instanceof GlobalEnvironment) {
+				return;
+			} else if (value instanceof Environment) {
+				visitValue(((Environment) value).enclosing());
+			} else if (value instanceof LoxFunction) {
+				LoxFunction function = (LoxFunction) value;
+				visitValue(function.closure());
+				declarations.add(function.declaration());
+			} else if (value instanceof LoxClass) {
+				LoxClass loxClass = (LoxClass) value;
+				visitValue(loxClass.superclass);
+				loxClass.copyMethods().values().forEach(this::visitValue);
+			} else if (value instanceof LoxInstance) {
+				visitValue(((LoxInstance) value).getLoxClass());
+			} else if (value instanceof BoundMethod) {
+				visitValue(((BoundMethod) value).receiver());
+				visitValue(((BoundMethod) value).method());
+			} else if (value instanceof NativeMethod) {
+				visitValue(((NativeMethod) value).receiver());
+			} else if (value instanceof MemoizedFunction) {
+				visitValue(((MemoizedFunction) value).function());
+			} else if (! (value instanceof LoxList) && ! (value instanceof LoxMap)) {
+				throw new IllegalArgumentException("Cannot snapshot the value " + value + ".");
+			}
+
+			objectIndexes.put(value, objects.size());
+			objects.add(value);
+			unvisited.add(value);
+		}
+
+		private void visitContents (Object object) {
+			if (object instanceof Environment) {
+				((Environment) object).variables().values().forEach(this::visitValue);
+			} else if (object instanceof LoxInstance) {
+				((LoxInstance) object).forEachField((name, value) -> visitValue(value));
+			} else if (object instanceof LoxList) {
+				LoxList list = (LoxList) object;
+				for (int i = 0; i < list.size(); i++) {
+					visitValue(list.get(i));
+				}
+			} else if (object instanceof LoxMap) {
+				((LoxMap) object).forEach((key, value) -> {
+					visitValue(key);
+					visitValue(value);
+				});
+			}
+		}
+
+		private void writeResolution () throws IOException {
+			List<Object> depthNodes = new ArrayList<>();
+			List<Object> globalNodes = new ArrayList<>();
+			List<Object> classNodes = new ArrayList<>();
+			List<Object> importNodes = new ArrayList<>();
+
+			for (Object node : nodeOffsets.keySet()) {
+				if (node instanceof Expression) {
+					Integer distance = interpreter.resolvedDistance((Expression) node);
+
+					if (distance != null) {
+						(distance >= 0 ? depthNodes : globalNodes).add(node);
+					}
+				} else if (node instanceof Statement.ClassStatement) {
+					if (interpreter.resolvedInitializerFields((Statement.ClassStatement) node) != null) {
+						classNodes.add(node);
+					}
+				} else if (node instanceof Statement.ImportStatement) {
+					if (interpreter.resolvedImport((Statement.ImportStatement) node) != null) {
+						importNodes.add(node);
+					}
+				}
+			}
+
+			output.writeInt(depthNodes.size());
+			for (Object node : depthNodes) {
+				output.writeInt(nodeOffsets.get(node));
+				output.writeInt(interpreter.resolvedDistance((Expression) node));
+			}
+
+			//Slot numbers are per interpreter, so globals are written by name
+			output.writeInt(globalNodes.size());
+			for (Object node : globalNodes) {
+				output.writeInt(nodeOffsets.get(node));
+				CompactProgram.writeString(output, interpreter.globals.nameOf(- interpreter.resolvedDistance((Expression) node) - 1));
+			}
+
+			output.writeInt(classNodes.size());
+			for (Object node : classNodes) {
+				output.writeInt(nodeOffsets.get(node));
+				writeStrings(interpreter.resolvedInitializerFields((Statement.ClassStatement) node));
+			}
+
+			output.writeInt(importNodes.size());
+			for (Object node : importNodes) {
+				output.writeInt(nodeOffsets.get(node));
+				CompactProgram.writeString(output, interpreter.resolvedImport((Statement.ImportStatement) node).toString());
+			}
+
+			output.writeInt(interpreter.loadedModules().size());
+			for (Path module : interpreter.loadedModules()) {
+				CompactProgram.writeString(output, module.toString());
+			}
+		}
+
+		private void writeObjects () throws IOException {
+			output.writeInt(objects.size());
+			for (Object object : objects) {
+				writeObject(object);
+			}
+
+			for (Object object : objects) {
+				writeContents(object);
+			}
+		}
+
+		private void writeObject (Object object) throws IOException {
+			if (object instanceof Environment) {
+				output.writeByte(ENVIRONMENT);
+				writeEnvironment(((Environment) object).enclosing());
+			} else if (object instanceof LoxFunction) {
+				LoxFunction function = (LoxFunction) object;
+				output.writeByte(FUNCTION);
+				output.writeInt(nodeOffsets.get(function.declaration()));
+				writeEnvironment(function.closure());
+				output.writeBoolean(function.isMethod());
+			} else if (object instanceof LoxClass) {
+				LoxClass loxClass = (LoxClass) object;
+				output.writeByte(CLASS);
+				CompactProgram.writeString(output, loxClass.className);
+				output.writeInt(loxClass.superclass == null ? NO_OBJECT : objectIndexes.get(loxClass.superclass));
+
+				Map<String, LoxFunction> methods = loxClass.copyMethods();
+				output.writeInt(methods.size());
+				for (Map.Entry<String, LoxFunction> method : methods.entrySet()) {
+					CompactProgram.writeString(output, method.getKey());
+					output.writeInt(objectIndexes.get(method.getValue()));
+				}
+
+				writeStrings(loxClass.initializerFields);
+				writeStrings(List.of(loxClass.layout.names()));
+			} else if (object instanceof LoxInstance) {
+				output.writeByte(INSTANCE);
+				output.writeInt(objectIndexes.get(((LoxInstance) object).getLoxClass()));
+			} else if (object instanceof LoxList) {
+				output.writeByte(LIST);
+			} else if (object instanceof LoxMap) {
+				output.writeByte(MAP);
+			} else if (object instanceof BoundMethod) {
+				output.writeByte(BOUND_METHOD);
+				writeValue(((BoundMethod) object).receiver());
+				output.writeInt(objectIndexes.get(((BoundMethod) object).method()));
+			} else if (object instanceof NativeMethod) {
+				output.writeByte(NATIVE_METHOD);
+				writeValue(((NativeMethod) object).receiver());
+				CompactProgram.writeString(output, ((NativeMethod) object).name());
+			} else if (object instanceof MemoizedFunction) {
+				output.writeByte(MEMOIZED_FUNCTION);
+				writeValue(((MemoizedFunction) object).function());
+				output.writeInt(((MemoizedFunction) object).capacity());
+			}
+		}
+
+		private void writeContents (Object object) throws IOException {
+			if (object instanceof Environment) {
+				Map<String, Object> variables = ((Environment) object).variables();
+				output.writeInt(variables.size());
+				for (Map.Entry<String, Object> variable : variables.entrySet()) {
+					CompactProgram.writeString(output, variable.getKey());
+					writeValue(variable.getValue());
+				}
+			} else if (object instanceof LoxInstance) {
+				Map<String, Object> fields = new HashMap<>();
+				((LoxInstance) object).forEachField(fields::put);
+
+				output.writeInt(fields.size());
+				for (Map.Entry<String, Object> field : fields.entrySet()) {
+					CompactProgram.writeString(output, field.getKey());
+					writeValue(field.getValue());
+				}
+			} else if (object instanceof LoxList) {
+				LoxList list = (LoxList) object;
+				output.writeInt(list.size());
+				for (int i = 0; i < list.size(); i++) {
+					writeValue(list.get(i));
+				}
+			} else if (object instanceof LoxMap) {
+				LoxMap map = (LoxMap) object;
+				List<Object> entries = new ArrayList<>();
+				map.forEach((key, value) -> {
+					entries.add(key);
+					entries.add(value);
+				});
+
+				output.writeInt(map.size());
+				for (Object entry : entries) {
+					writeValue(entry);
+				}
+			}
+		}
+
+		private void writeGlobals () throws IOException {
+			GlobalEnvironment globals = interpreter.globals;
+			int count = 0;
+			for (int slot = 0; slot < globals.slotCount(); slot++) {
+				if (globals.isDefined(slot)) {
+					count++;
+				}
+			}
+
+			output.writeInt(count);
+			for (int slot = 0; slot < globals.slotCount(); slot++) {
+				if (globals.isDefined(slot)) {
+					CompactProgram.writeString(output, globals.nameOf(slot));
+					writeValue(globals.valueAt(slot));
+				}
+			}
+		}
+
+		private void writeEnvironment (Environment environment) throws IOException {
+			output.writeInt(environment instanceof GlobalEnvironment ? NO_OBJECT : objectIndexes.get(environment));
+		}
+
+		private void writeValue (Object value) throws IOException {
+			if (value == null) {
+				output.writeByte(NIL);
+			} else if (value instanceof Boolean) {
+				output.writeByte((Boolean) value ? TRUE : FALSE);
+			} else if (value instanceof Double) {
+				output.writeByte(NUMBER);
+				output.writeDouble((Double) value);
+			} else if (ConcatString.isString(value)) {
+				output.writeByte(STRING);
+				CompactProgram.writeString(output, value.toString());
+			} else if (builtinNames.containsKey(value)) {
+				output.writeByte(BUILTIN);
+				CompactProgram.writeString(output, builtinNames.get(value));
+			} else {
+				output.writeByte(OBJECT);
+				output.writeInt(objectIndexes.get(value));
+			}
+		}
+
+		private void writeStrings (List<String> strings) throws IOException {
+			output.writeInt(strings.size());
+			for (String string : strings) {
+				CompactProgram.writeString(output, string);
+			}
+		}
+	}
+
+	private static final class Reader {
+		private final ByteBuffer image;
+		private final Interpreter interpreter;
+		private Object[] nodes;
+		private Object[] objects;
+
+		Reader (ByteBuffer image, Interpreter interpreter) {
+			this.image = image;
+			this.interpreter = interpreter;
+		}
+
+		void read () throws IOException {
+			if (image.getInt() != MAGIC || image.getInt() != VERSION || image.getInt() != TOKEN_TYPES.length
+					|| image.getInt() != tokenTypesHash()) {
+				throw new IOException("Not a jlox snapshot, or one written by another version.");
+			}
+
+			CompactProgram program = CompactProgram.readFrom(image);
+			nodes = new Object[program.nodeCodeLength()];
+			program.decode(nodes);
+
+			readResolution();
+			readObjects();
+
+			int globalCount = image.getInt();
+			for (int i = 0; i < globalCount; i++) {
+				String name = readString();
+				interpreter.globals.define(name, readValue());
+			}
+		}
+
+		private void readResolution () {
+			int depthCount = image.getInt();
+			for (int i = 0; i < depthCount; i++) {
+				Expression expression = (Expression) nodes[image.getInt()];
+				interpreter.resolve(expression, image.getInt());
+			}
+
+			int globalCount = image.getInt();
+			for (int i = 0; i < globalCount; i++) {
+				Expression expression = (Expression) nodes[image.getInt()];
+				interpreter.resolveGlobal(expression, nameToken(readString()));
+			}
+
+			int classCount = image.getInt();
+			for (int i = 0; i < classCount; i++) {
+				Statement.ClassStatement statement = (Statement.ClassStatement) nodes[image.getInt()];
+				interpreter.resolveInitializerFields(statement, readStrings());
+			}
+
+			int importCount = image.getInt();
+			for (int i = 0; i < importCount; i++) {
+				Statement.ImportStatement statement = (Statement.ImportStatement) nodes[image.getInt()];
+				interpreter.resolveImport(statement, Paths.get(readString()));
+			}
+
+			int moduleCount = image.getInt();
+			for (int i = 0; i < moduleCount; i++) {
+				interpreter.loadedModules().add(Paths.get(readString()));
+			}
+		}
+
+		private void readObjects () throws IOException {
+			objects = new Object[CompactProgram.readLength(image, 1)];
+			for (int i = 0; i < objects.length; i++) {
+				objects[i] = readObject();
+			}
+
+			for (Object object : objects) {
+				readContents(object);
+			}
+		}
+
+		private Object readObject () throws IOException {
+			byte kind = image.get();
+
+			switch (kind) {
+				case ENVIRONMENT:
+					return new Environment(readEnvironment());
+				case FUNCTION: {
+					Statement.FunctionStatement declaration = (Statement.FunctionStatement) nodes[image.getInt()];
+					Environment closure = readEnvironment();
+					return new LoxFunction(declaration, closure, image.get() != 0);
+				}
+				case CLASS: {
+					String name = readString();
+					int superclass = image.getInt();
+
+					int methodCount = image.getInt();
+					Map<String, LoxFunction> methods = new HashMap<>();
+					for (int i = 0; i < methodCount; i++) {
+						String methodName = readString();
+						methods.put(methodName, (LoxFunction) objects[image.getInt()]);
+					}
+
+					LoxClass loxClass = new LoxClass(name, superclass == NO_OBJECT ? null : (LoxClass) objects[superclass],
+													 methods, readStrings());
+
+					//Fields first assigned outside init grew the layout after the class was defined
+					List<String> layoutNames = readStrings();
+					for (int slot = loxClass.layout.size(); slot < layoutNames.size(); slot++) {
+						loxClass.layout.addSlot(layoutNames.get(slot));
+					}
+
+					return loxClass;
+				}
+				case INSTANCE:
+					return new LoxInstance((LoxClass) objects[image.getInt()]);
+				case LIST:
+					return new LoxList();
+				case MAP:
+					return new LoxMap();
+				case BOUND_METHOD: {
+					Object receiver = readValue();
+					return new BoundMethod(receiver, (LoxFunction) objects[image.getInt()]);
+				}
+				case NATIVE_METHOD: {
+					Object receiver = readValue();
+					Token name = nameToken(readString());
+					return ((LoxCollection) receiver).get(name);
+				}
+				case MEMOIZED_FUNCTION: {
+					LoxCallable function = (LoxCallable) readValue();
+					return new MemoizedFunction(function, image.getInt());
+				}
+				default:
+					throw new IllegalStateException("Unexpected object kind: " + kind);
+			}
+		}
+
+		private void readContents (Object object) throws IOException {
+			if (object instanceof Environment) {
+				Environment environment = (Environment) object;
+				int count = image.getInt();
+				for (int i = 0; i < count; i++) {
+					String name = readString();
+					environment.define(name, readValue());
+				}
+			} else if (object instanceof LoxInstance) {
+				LoxInstance instance = (LoxInstance) object;
+				int count = image.getInt();
+				for (int i = 0; i < count; i++) {
+					Token name = nameToken(readString());
+					instance.set(name, readValue());
+				}
+			} else if (object instanceof LoxList) {
+				LoxList list = (LoxList) object;
+				int count = image.getInt();
+				for (int i = 0; i < count; i++) {
+					list.add(readValue());
+				}
+			} else if (object instanceof LoxMap) {
+				LoxMap map = (LoxMap) object;
+				int count = image.getInt();
+				for (int i = 0; i < count; i++) {
+					Object key = readValue();
+					map.put(key, readValue());
+				}
+			}
+		}
+
+		private Environment readEnvironment () {
+			int index = image.getInt();
+			return index == NO_OBJECT ? interpreter.globals : (Environment) objects[index];
+		}
+
+		//Objects referred to from constructor arguments are always earlier in the table, so already built
+		private Object readValue () throws IOException {
+			byte tag = image.get();
+
+			switch (tag) {
+				case NIL:
+					return null;
+				case FALSE:
+					return false;
+				case TRUE:
+					return true;
+				case NUMBER:
+					return image.getDouble();
+				case STRING:
+					return readString();
+				case OBJECT:
+					return objects[image.getInt()];
+				case BUILTIN: {
+					String name = readString();
+
+					if (! interpreter.builtins().containsKey(name)) {
+						throw new IOException("Snapshot refers to the native '" + name + "', which is not defined.");
+					}
+
+					return interpreter.builtins().get(name);
+				}
+				default:
+					throw new IllegalStateException("Unexpected value tag: " + tag);
+			}
+		}
+
+		private String readString () {
+			return CompactProgram.readString(image);
+		}
+
+		private List<String> readStrings () {
+			int count = CompactProgram.readLength(image, Integer.BYTES);
+			List<String> strings = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				strings.add(readString());
+			}
+			return strings;
+		}
+	}
+}
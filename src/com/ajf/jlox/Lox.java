@@ -5,25 +5,181 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
 public class Lox {
 	static boolean hadError;
 	static boolean hadRuntimeError;
-	private static final Interpreter interpreter = new Interpreter();
+	private static final int MAX_PARSE_DIAGNOSTICS = 100;
+	private static boolean parallelParse;
+	private static LoxProfiler profiler;
+	private static Path profileOutput;
+	private static HotSpotCounters hotSpots;
+	private static long flushIntervalMillis;
+	private static Path snapshotOutput;
+	//Created by main rather than when the class loads, so LoxServer's use of runScript doesn't build one
+	private static Interpreter interpreter;
 
 	public static void main (String[] args) throws IOException {
-		if (args.length > 1) {
-			System.out.println("Usage: jlox [script]");
-			System.exit(64);
-		} else if (args.length == 1) {
-			runFile(args[0]);
+		interpreter = new Interpreter();
+
+		int argumentIndex = 0;
+		while (argumentIndex < args.length && args[argumentIndex].startsWith("--")) {
+			applyOption(args[argumentIndex]);
+			argumentIndex++;
+		}
+
+		int remainingArguments = args.length - argumentIndex;
+
+		if (remainingArguments > 1) {
+			printUsageAndExit();
+		}
+
+		if (profiler != null) {
+			interpreter.profiler = profiler;
+			profiler.start();
+		}
+
+		interpreter.hotSpots = hotSpots;
+		LoxEvents.registerPeriodicCounters();
+
+		if (flushIntervalMillis > 0) {
+			OutputSink.flushPeriodically(interpreter.output, flushIntervalMillis);
+		}
+
+		if (remainingArguments == 1) {
+			runFile(args[argumentIndex]);
 		} else {
 			runPrompt();
+			finishInstrumentation();
+		}
+
+		if (snapshotOutput != null) {
+			writeSnapshot();
+		}
+	}
+
+	private static void applyOption (String option) throws IOException {
+		if (option.equals("--parallel-parse")) {
+			parallelParse = true;
+		} else if (option.equals("--profile")) {
+			enableProfiling("jlox.collapsed");
+		} else if (option.startsWith("--profile=")) {
+			enableProfiling(option.substring("--profile=".length()));
+		} else if (option.equals("--hotspots")) {
+			hotSpots = new HotSpotCounters();
+		} else if (option.startsWith("--max-memory=")) {
+			interpreter.memory.setLimit(parseByteCount(option.substring("--max-memory=".length())));
+		} else if (option.startsWith("--max-steps=")) {
+			interpreter.budget.setStepLimit(parseCount(option.substring("--max-steps=".length())));
+		} else if (option.startsWith("--timeout=")) {
+			interpreter.budget.setTimeLimitMillis(parseCount(option.substring("--timeout=".length())));
+		} else if (option.startsWith("--output=") && option.length() > "--output=".length()) {
+			interpreter.output = ChannelOutputSink.open(Paths.get(option.substring("--output=".length())));
+		} else if (option.startsWith("--flush-interval=")) {
+			flushIntervalMillis = parseCount(option.substring("--flush-interval=".length()));
+		} else if (option.startsWith("--snapshot=") && option.length() > "--snapshot=".length()) {
+			snapshotOutput = Paths.get(option.substring("--snapshot=".length()));
+		} else if (option.startsWith("--restore=") && option.length() > "--restore=".length()) {
+			restoreSnapshot(Paths.get(option.substring("--restore=".length())));
+		} else {
+			printUsageAndExit();
+		}
+	}
+
+	private static void printUsageAndExit () {
+		System.out.println("Usage: jlox [--parallel-parse] [--profile[=output]] [--hotspots] [--max-memory=bytes[k|m|g]] [--max-steps=n] [--timeout=ms] [--output=file] [--flush-interval=ms] [--snapshot=file] [--restore=file] [script]");
+		System.exit(64);
+	}
+
+	private static long parseCount (String value) {
+		try {
+			long count = Long.parseLong(value);
+
+			if (count < 0) {
+				printUsageAndExit();
+			}
+
+			return count;
+		} catch (NumberFormatException exception) {
+			printUsageAndExit();
+			return 0;
 		}
 	}
 
+	private static long parseByteCount (String value) {
+		if (value.isEmpty()) {
+			printUsageAndExit();
+		}
+
+		long multiplier = 1;
+		switch (Character.toLowerCase(value.charAt(value.length() - 1))) {
+			case 'k':
+				multiplier = 1024L;
+				break;
+			case 'm':
+				multiplier = 1024L * 1024L;
+				break;
+			case 'g':
+				multiplier = 1024L * 1024L * 1024L;
+				break;
+		}
+
+		String digits = multiplier == 1 ? value : value.substring(0, value.length() - 1);
+
+		try {
+			long count = Long.parseLong(digits);
+
+			if (count < 0) {
+				printUsageAndExit();
+			}
+
+			return Math.multiplyExact(count, multiplier);
+		} catch (NumberFormatException | ArithmeticException exception) {
+			printUsageAndExit();
+			return 0;
+		}
+	}
+
+	//Globals left by the script, e.g. a prelude, for --restore in later runs
+	private static void writeSnapshot () {
+		try {
+			interpreter.snapshot(snapshotOutput);
+		} catch (IOException | IllegalArgumentException exception) {
+			System.err.println("Could not write snapshot '" + snapshotOutput + "': " + exception.getMessage());
+			System.exit(74);
+		}
+	}
+
+	private static void restoreSnapshot (Path snapshot) {
+		try {
+			interpreter.restore(snapshot);
+		} catch (IOException exception) {
+			System.err.println("Could not restore snapshot '" + snapshot + "': " + exception.getMessage());
+			System.exit(66);
+		}
+	}
+
+	private static void enableProfiling (String output) {
+		profiler = new LoxProfiler(1);
+		profileOutput = Paths.get(output);
+	}
+
+	private static void finishInstrumentation () throws IOException {
+		if (hotSpots != null) {
+			hotSpots.report(System.err);
+		}
+
+		if (profiler == null) {
+			return;
+		}
+
+		profiler.stop();
+		profiler.writeCollapsedStacks(profileOutput);
+	}
+
 	private static void runPrompt () throws IOException {
 		InputStreamReader input = new InputStreamReader(System.in);
 		BufferedReader reader = new BufferedReader(input);
@@ -36,42 +192,73 @@ public class Lox {
 				break;
 			}
 
-			run(line);
+			run(line, interpreter, Paths.get(""));
 			hadError = false;
 			hadRuntimeError = false;
 		}
 	}
 
 	private static void runFile (String path) throws IOException {
-		byte[] bytes = Files.readAllBytes(Paths.get(path));
-		run(new String(bytes, Charset.defaultCharset()));
+		int exitCode = runScript(Paths.get(path), interpreter);
+		finishInstrumentation();
+
+		if (exitCode != 0) {
+			System.exit(exitCode);
+		}
+	}
+
+	//Runs a whole script, with imports resolved against its directory, and returns the process exit code: 65 for
+	//a static error, 70 for a runtime error and 0 otherwise. The server runs every request through here.
+	static int runScript (Path path, Interpreter interpreter) throws IOException {
+		Path scriptPath = path.toAbsolutePath();
+		byte[] bytes = Files.readAllBytes(scriptPath);
+		return runSource(new String(bytes, Charset.defaultCharset()), interpreter, scriptPath.getParent());
+	}
+
+	//Same as runScript for source that is already in memory
+	static int runSource (String source, Interpreter interpreter, Path directory) {
+		hadError = false;
+		hadRuntimeError = false;
+		run(source, interpreter, directory);
 
 		if (hadError) {
-			System.exit(65);
+			return 65;
 		} else if (hadRuntimeError) {
-			System.exit(70);
+			return 70;
 		}
+
+		return 0;
 	}
 
-	private static void run (String source) {
+	private static void run (String source, Interpreter interpreter, Path directory) {
 		Scanner scanner = new Scanner(source);
 		List<Token> tokens = scanner.scanTokens();
 
-		Parser parser = new Parser(tokens);
-		List<Statement> statements = parser.parse();
+		ParseResult parseResult;
+		if (parallelParse) {
+			parseResult = new ParallelParser(tokens).parse(MAX_PARSE_DIAGNOSTICS);
+		} else {
+			parseResult = Parser.parseWithDiagnostics(tokens, MAX_PARSE_DIAGNOSTICS);
+		}
+
+		if (parseResult.hasErrors()) {
+			parseResult.diagnostics.report();
+			hadError = true;
+		}
 
 		if (hadError) {
 			return;
 		}
 
-		Resolver resolver = new Resolver(interpreter);
+		List<Statement> statements = parseResult.statements;
+
+		Resolver resolver = new Resolver(interpreter, directory);
+		resolver.resolve(statements);
 
 		if (hadError) {
 			return;
 		}
 
-		resolver.resolve(statements);
-
 		interpreter.interpret(statements);
 
 	}
@@ -87,6 +274,14 @@ public class Lox {
 	static void runtimeError (RuntimeError error) {
 		System.err.println(error.getMessage() + "\n[line " + error.token.line + "]");
 		hadRuntimeError = true;
+
+		LoxEvents.runtimeErrors.increment();
+		LoxEvents.RuntimeErrorEvent event = new LoxEvents.RuntimeErrorEvent();
+		if (event.shouldCommit()) {
+			event.message = error.getMessage();
+			event.line = error.token.line;
+			event.commit();
+		}
 	}
 
 	private static void report (int line, String where, String message) {
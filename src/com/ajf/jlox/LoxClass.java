@@ -1,20 +1,31 @@
 package com.ajf.jlox;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class LoxClass implements LoxCallable {
 	final String className;
+	final LoxClass superclass;
+	//Own and inherited methods, flattened when the class is defined
 	private final Map<String, LoxFunction> methods;
+	private final LoxFunction initializer;
+	//Fields the init methods of this class and its superclasses assign through 'this'
+	final List<String> initializerFields;
+	final FieldLayout layout;
 
 	public LoxClass (String className) {
-		this.className = className;
-		this.methods = null;
+		this(className, null, new HashMap<>(), List.of());
 	}
 
-	public LoxClass (String className, Map<String, LoxFunction> methods) {
+	public LoxClass (String className, LoxClass superclass, Map<String, LoxFunction> methods,
+					 List<String> initializerFields) {
 		this.className = className;
+		this.superclass = superclass;
 		this.methods = methods;
+		this.initializer = methods.get("init");
+		this.initializerFields = initializerFields;
+		this.layout = new FieldLayout(initializerFields);
 	}
 
 	@Override
@@ -24,20 +35,34 @@ public class LoxClass implements LoxCallable {
 
 	@Override
 	public Object call (Interpreter interpreter, List<Object> arguments) {
+		interpreter.memory.charge(MemoryBudget.INSTANCE_BYTES);
 		LoxInstance instance = new LoxInstance(this);
+
+		LoxEvents.instancesCreated.increment();
+		LoxEvents.InstanceCreationEvent event = new LoxEvents.InstanceCreationEvent();
+		if (event.shouldCommit()) {
+			event.className = className;
+			event.commit();
+		}
+
+		if (initializer != null) {
+			initializer.callMethod(interpreter, instance, arguments);
+		}
+
 		return instance;
 	}
 
 	@Override
 	public int arity () {
-		return 0;
+		return initializer == null ? 0 : initializer.arity();
 	}
 
 	public LoxFunction findMethod (String methodName) {
-		if (methods.containsKey(methodName)) {
-			return methods.get(methodName);
-		} else {
-			return null;
-		}
+		return methods.get(methodName);
+	}
+
+	//Starting point for a subclass's method table
+	Map<String, LoxFunction> copyMethods () {
+		return new HashMap<>(methods);
 	}
 }
@@ -0,0 +1,52 @@
+package com.ajf.jlox;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+
+//Thin front end for LoxServer: sends the script path, copies the stdout and stderr frames to its own streams and
+//exits with the script's exit code. It only touches java.nio and java.io so its own startup stays small.
+public final class LoxClient {
+	public static void main (String[] args) throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: jlox-client socket script");
+			System.exit(64);
+		}
+
+		try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(args[0]))) {
+			DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+			request.writeUTF(Paths.get(args[1]).toAbsolutePath().toString());
+			request.flush();
+
+			DataInputStream response = new DataInputStream(
+					new BufferedInputStream(Channels.newInputStream(channel), OutputSink.BUFFER_SIZE));
+			byte[] buffer = new byte[OutputSink.BUFFER_SIZE];
+
+			while (true) {
+				byte tag = response.readByte();
+
+				if (tag == LoxServer.EXIT) {
+					int exitCode = response.readInt();
+					System.out.flush();
+					System.err.flush();
+					System.exit(exitCode);
+				}
+
+				int length = response.readInt();
+				if (length > buffer.length) {
+					buffer = new byte[length];
+				}
+
+				response.readFully(buffer, 0, length);
+				PrintStream stream = tag == LoxServer.STDOUT ? System.out : System.err;
+				stream.write(buffer, 0, length);
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.ajf.jlox;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+//Built-in List and Map. Their methods take at most one argument. A call such as 'xs.add(v)' goes straight to
+//callMethod from the interpreter; a NativeMethod is only created when a method is read as a value.
+interface LoxCollection {
+	//Throws for names that are not methods of this collection
+	int methodArity (Token name);
+
+	Object callMethod (Interpreter interpreter, Token name, Object argument);
+
+	//Appends the elements, writing a collection that contains itself as [...] or {...} instead of recursing forever
+	void appendTo (StringBuilder text, NumberFormatter formatter, Map<LoxCollection, Boolean> printing);
+
+	default NativeMethod get (Token name) {
+		return new NativeMethod(this, name.lexeme, methodArity(name),
+								(interpreter, arguments) -> callMethod(interpreter, name, arguments.isEmpty() ? null : arguments.get(0)));
+	}
+
+	static String toString (LoxCollection collection) {
+		StringBuilder text = new StringBuilder();
+		collection.appendTo(text, new NumberFormatter(), new IdentityHashMap<>());
+		return text.toString();
+	}
+
+	static void appendElement (StringBuilder text, NumberFormatter formatter, Map<LoxCollection, Boolean> printing,
+							   Object element) {
+		if (element == null) {
+			text.append("nil");
+		} else if (element instanceof Double) {
+			text.append(formatter.buffer(), 0, formatter.format((Double) element));
+		} else if (element instanceof LoxCollection) {
+			((LoxCollection) element).appendTo(text, formatter, printing);
+		} else {
+			text.append(element);
+		}
+	}
+
+	static RuntimeError undefinedProperty (Token name) {
+		return new RuntimeError(name, "Undefined property '" + name.lexeme + "'.");
+	}
+}
@@ -0,0 +1,128 @@
+package com.ajf.jlox;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//JDK Flight Recorder events emitted by the interpreter. When no recording is running the events are disabled and
+//the JIT removes their allocation, so emission sites only pay for an enabled check.
+//Record with: java -XX:StartFlightRecording=filename=jlox.jfr -jar jlox.jar script.lox
+final class LoxEvents {
+	//Process-wide totals for the periodic counters event. LongAdder keeps concurrent interpreters from losing
+	//updates or contending on one cache line; the sums are only read when the event fires.
+	static final LongAdder functionCalls = new LongAdder();
+	static final LongAdder instancesCreated = new LongAdder();
+	static final LongAdder environmentsAllocated = new LongAdder();
+	static final LongAdder runtimeErrors = new LongAdder();
+
+	private static boolean periodicCountersRegistered;
+
+	private LoxEvents () {
+	}
+
+	//Registering a periodic event starts up the Flight Recorder machinery, several hundred milliseconds of class
+	//loading, so it is deferred until a recorder exists. -XX:StartFlightRecording creates one before main runs;
+	//otherwise the listener fires when a recording is first started, e.g. with jcmd.
+	static synchronized void registerPeriodicCounters () {
+		if (periodicCountersRegistered) {
+			return;
+		}
+
+		periodicCountersRegistered = true;
+
+		if (FlightRecorder.isInitialized()) {
+			addCountersEvent();
+		} else {
+			FlightRecorder.addListener(new FlightRecorderListener() {
+				@Override
+				public void recorderInitialized (FlightRecorder recorder) {
+					addCountersEvent();
+				}
+			});
+		}
+	}
+
+	private static void addCountersEvent () {
+		FlightRecorder.addPeriodicEvent(CountersEvent.class, () -> {
+			CountersEvent event = new CountersEvent();
+			event.functionCalls = functionCalls.sum();
+			event.instancesCreated = instancesCreated.sum();
+			event.environmentsAllocated = environmentsAllocated.sum();
+			event.runtimeErrors = runtimeErrors.sum();
+			event.commit();
+		});
+	}
+
+	@Name("com.ajf.jlox.FunctionCall")
+	@Label("Lox Function Call")
+	@Description("A call to a Lox function, from entry to return")
+	@Category("Lox")
+	@StackTrace(false)
+	static class FunctionCallEvent extends Event {
+		@Label("Function")
+		String function;
+
+		@Label("Line")
+		int line;
+
+		@Label("Arguments")
+		int arguments;
+	}
+
+	@Name("com.ajf.jlox.InstanceCreation")
+	@Label("Lox Instance Creation")
+	@Category("Lox")
+	@StackTrace(false)
+	static class InstanceCreationEvent extends Event {
+		@Label("Class")
+		String className;
+	}
+
+	@Name("com.ajf.jlox.EnvironmentAllocation")
+	@Label("Lox Environment Allocation")
+	@Description("A new scope for a block or function call")
+	@Category("Lox")
+	@StackTrace(false)
+	static class EnvironmentAllocationEvent extends Event {
+	}
+
+	@Name("com.ajf.jlox.RuntimeError")
+	@Label("Lox Runtime Error")
+	@Category("Lox")
+	@StackTrace(false)
+	static class RuntimeErrorEvent extends Event {
+		@Label("Message")
+		String message;
+
+		@Label("Line")
+		int line;
+	}
+
+	@Name("com.ajf.jlox.Counters")
+	@Label("Lox Interpreter Counters")
+	@Description("Running totals of interpreter activity")
+	@Category("Lox")
+	@Period("1 s")
+	@StackTrace(false)
+	static class CountersEvent extends Event {
+		@Label("Function Calls")
+		long functionCalls;
+
+		@Label("Instances Created")
+		long instancesCreated;
+
+		@Label("Environments Allocated")
+		long environmentsAllocated;
+
+		@Label("Runtime Errors")
+		long runtimeErrors;
+	}
+}
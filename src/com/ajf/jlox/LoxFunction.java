@@ -5,26 +5,85 @@ import java.util.List;
 public class LoxFunction implements LoxCallable {
 	private final Statement.FunctionStatement declaration;
 	private final Environment closure;
+	private final boolean isMethod;
+	private final boolean isInitializer;
 
 	public LoxFunction (Statement.FunctionStatement declaration, Environment closure) {
+		this(declaration, closure, false);
+	}
+
+	public LoxFunction (Statement.FunctionStatement declaration, Environment closure, boolean isMethod) {
 		this.closure = closure;
 		this.declaration = declaration;
+		this.isMethod = isMethod;
+		this.isInitializer = isMethod && declaration.name.lexeme.equals("init");
+	}
+
+	Statement.FunctionStatement declaration () {
+		return declaration;
+	}
+
+	Environment closure () {
+		return closure;
+	}
+
+	boolean isMethod () {
+		return isMethod;
 	}
 
 	@Override
 	public Object call (Interpreter interpreter, List<Object> arguments) {
+		return callMethod(interpreter, null, arguments);
+	}
+
+	//Methods get the receiver as 'this' in their own call environment, so no bound closure is needed per call
+	Object callMethod (Interpreter interpreter, Object receiver, List<Object> arguments) {
+		MemoryBudget memory = interpreter.memory;
+		long frameMark = memory.frameMark();
+		memory.chargeFrame(MemoryBudget.ENVIRONMENT_BYTES + MemoryBudget.VARIABLE_BYTES * arguments.size());
 		Environment environment = new Environment(closure);
 
+		if (isMethod) {
+			memory.chargeFrame(MemoryBudget.VARIABLE_BYTES);
+			environment.define("this", receiver);
+		}
+
 		for (int i = 0; i < declaration.params.size(); i++) {
 			environment.define(declaration.params.get(i).lexeme, arguments.get(i));
 		}
 
+		if (interpreter.hotSpots != null) {
+			interpreter.hotSpots.recordCall(declaration);
+		}
+
+		LoxProfiler profiler = interpreter.profiler;
+		if (profiler != null) {
+			profiler.enter(declaration.name.lexeme);
+		}
+
+		LoxEvents.functionCalls.increment();
+		LoxEvents.FunctionCallEvent event = new LoxEvents.FunctionCallEvent();
+		event.begin();
+
 		try {
 			interpreter.executeBlock(declaration.body, environment);
 		} catch (Return returnValue) {
-			return returnValue.value;
+			return isInitializer ? receiver : returnValue.value;
+		} finally {
+			memory.releaseFrames(frameMark);
+
+			if (event.shouldCommit()) {
+				event.function = declaration.name.lexeme;
+				event.line = declaration.name.line;
+				event.arguments = arguments.size();
+				event.commit();
+			}
+
+			if (profiler != null) {
+				profiler.exit();
+			}
 		}
-		return null;
+		return isInitializer ? receiver : null;
 	}
 
 	@Override
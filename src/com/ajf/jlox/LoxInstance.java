@@ -1,14 +1,31 @@
 package com.ajf.jlox;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
+//Fields are stored in an Object[] indexed through the class's FieldLayout, so an instance costs one object and
+//one small array. Fields beyond the layout's capacity fall back to a per-instance dictionary.
 public class LoxInstance {
-	private LoxClass newClass;
-	private final Map<String, Object> fields = new HashMap<>();
+	//Marks slots of fields this instance has not been given, as nil is a valid field value
+	private static final Object ABSENT = new Object();
+	private static final Object[] NO_SLOTS = new Object[0];
+
+	private final LoxClass newClass;
+	private Object[] slots;
+	private Map<String, Object> overflowFields;
 
 	LoxInstance (LoxClass newClass) {
 		this.newClass = newClass;
+
+		int size = newClass.layout.size();
+		this.slots = size == 0 ? NO_SLOTS : new Object[size];
+		Arrays.fill(slots, ABSENT);
+	}
+
+	LoxClass getLoxClass () {
+		return newClass;
 	}
 
 	@Override
@@ -17,16 +34,76 @@ public class LoxInstance {
 	}
 
 	public Object get (Token className) {
-		if (fields.containsKey(className.lexeme)) {
-			return fields.get(className.lexeme);
-		} else if (newClass.findMethod(className.lexeme) != null) {
-			return newClass.findMethod(className.lexeme);
-		} else {
-			throw new RuntimeError(className, "Undefined property '" + className.lexeme + "'.");
+		Object value = field(className.lexeme);
+		if (value != ABSENT) {
+			return value;
+		}
+
+		LoxFunction method = newClass.findMethod(className.lexeme);
+		if (method != null) {
+			return new BoundMethod(this, method);
+		}
+
+		throw new RuntimeError(className, "Undefined property '" + className.lexeme + "'.");
+	}
+
+	boolean hasField (String name) {
+		return field(name) != ABSENT;
+	}
+
+	private Object field (String name) {
+		int slot = newClass.layout.slotOf(name);
+
+		if (slot != FieldLayout.ABSENT) {
+			return slot < slots.length ? slots[slot] : ABSENT;
+		} else if (overflowFields != null && overflowFields.containsKey(name)) {
+			return overflowFields.get(name);
+		}
+
+		return ABSENT;
+	}
+
+	void forEachField (BiConsumer<String, Object> action) {
+		String[] names = newClass.layout.names();
+
+		for (int slot = 0; slot < slots.length; slot++) {
+			if (slots[slot] != ABSENT) {
+				action.accept(names[slot], slots[slot]);
+			}
+		}
+
+		if (overflowFields != null) {
+			overflowFields.forEach(action);
 		}
 	}
 
-	public void set (Token name, Object value) {
-		fields.put(name.lexeme, value);
+	//Returns true when the instance did not have the field before
+	public boolean set (Token name, Object value) {
+		FieldLayout layout = newClass.layout;
+		int slot = layout.slotOf(name.lexeme);
+
+		if (slot == FieldLayout.ABSENT) {
+			slot = layout.addSlot(name.lexeme);
+		}
+
+		if (slot == FieldLayout.ABSENT) {
+			if (overflowFields == null) {
+				overflowFields = new HashMap<>();
+			}
+
+			boolean added = ! overflowFields.containsKey(name.lexeme);
+			overflowFields.put(name.lexeme, value);
+			return added;
+		}
+
+		if (slot >= slots.length) {
+			int oldLength = slots.length;
+			slots = Arrays.copyOf(slots, layout.size());
+			Arrays.fill(slots, oldLength, slots.length, ABSENT);
+		}
+
+		boolean added = slots[slot] == ABSENT;
+		slots[slot] = value;
+		return added;
 	}
 }
@@ -0,0 +1,158 @@
+package com.ajf.jlox;
+
+import java.util.Arrays;
+import java.util.Map;
+
+//Built-in List. While every element is a number the elements live unboxed in a double[]; the first non-number
+//stored moves them into an Object[] for the rest of the list's life.
+final class LoxList implements LoxCollection {
+	private static final int INITIAL_CAPACITY = 8;
+
+	private double[] numbers = new double[INITIAL_CAPACITY];
+	private Object[] values;
+	private int size = 0;
+
+	int size () {
+		return size;
+	}
+
+	boolean isNumeric () {
+		return values == null;
+	}
+
+	Object get (int index) {
+		return values == null ? (Object) numbers[index] : values[index];
+	}
+
+	void set (int index, Object value) {
+		if (values == null) {
+			if (value instanceof Double) {
+				numbers[index] = (Double) value;
+				return;
+			}
+
+			boxNumbers();
+		}
+
+		values[index] = value;
+	}
+
+	void add (Object value) {
+		int capacity = values == null ? numbers.length : values.length;
+
+		if (size == capacity) {
+			if (values == null) {
+				numbers = Arrays.copyOf(numbers, capacity * 2);
+			} else {
+				values = Arrays.copyOf(values, capacity * 2);
+			}
+		}
+
+		size++;
+		set(size - 1, value);
+	}
+
+	Object pop () {
+		if (size == 0) {
+			return null;
+		}
+
+		Object last = get(size - 1);
+
+		if (values != null) {
+			values[size - 1] = null;
+		}
+
+		size--;
+		return last;
+	}
+
+	private void boxNumbers () {
+		values = new Object[numbers.length];
+
+		for (int i = 0; i < size; i++) {
+			values[i] = numbers[i];
+		}
+
+		numbers = null;
+	}
+
+	//Index operands must be integral numbers within the list
+	int checkIndex (Token bracket, Object index) {
+		if (! (index instanceof Double)) {
+			throw new RuntimeError(bracket, "List index must be a number.");
+		}
+
+		double number = (Double) index;
+		int position = (int) number;
+
+		if (position != number) {
+			throw new RuntimeError(bracket, "List index must be an integer.");
+		}
+
+		if (position < 0 || position >= size) {
+			throw new RuntimeError(bracket, "List index " + position + " out of range for length " + size + ".");
+		}
+
+		return position;
+	}
+
+	@Override
+	public int methodArity (Token name) {
+		switch (name.lexeme) {
+			case "add":
+				return 1;
+			case "pop":
+			case "length":
+				return 0;
+			default:
+				throw LoxCollection.undefinedProperty(name);
+		}
+	}
+
+	@Override
+	public Object callMethod (Interpreter interpreter, Token name, Object argument) {
+		switch (name.lexeme) {
+			case "add":
+				interpreter.memory.charge(MemoryBudget.ELEMENT_BYTES);
+				add(argument);
+				return null;
+			case "pop":
+				return pop();
+			case "length":
+				return (double) size;
+			default:
+				throw LoxCollection.undefinedProperty(name);
+		}
+	}
+
+	@Override
+	public void appendTo (StringBuilder text, NumberFormatter formatter, Map<LoxCollection, Boolean> printing) {
+		if (printing.put(this, true) != null) {
+			text.append("[...]");
+			return;
+		}
+
+		text.append('[');
+
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				text.append(", ");
+			}
+
+			if (values == null) {
+				text.append(formatter.buffer(), 0, formatter.format(numbers[i]));
+			} else {
+				LoxCollection.appendElement(text, formatter, printing, values[i]);
+			}
+		}
+
+		text.append(']');
+		printing.remove(this);
+	}
+
+	@Override
+	public String toString () {
+		return LoxCollection.toString(this);
+	}
+}
@@ -0,0 +1,97 @@
+package com.ajf.jlox;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+//Built-in Map. Keys compare like Lox '==', so concatenated strings are flattened before use. Iteration order,
+//and so the order of keys(), is insertion order.
+final class LoxMap implements LoxCollection {
+	private final Map<Object, Object> entries = new LinkedHashMap<>();
+
+	int size () {
+		return entries.size();
+	}
+
+	//Missing keys read as nil
+	Object get (Object key) {
+		return entries.get(ConcatString.flatten(key));
+	}
+
+	//Returns true when the key was not present before
+	boolean put (Object key, Object value) {
+		int size = entries.size();
+		entries.put(ConcatString.flatten(key), value);
+		return entries.size() > size;
+	}
+
+	void forEach (BiConsumer<Object, Object> action) {
+		entries.forEach(action);
+	}
+
+	@Override
+	public int methodArity (Token name) {
+		switch (name.lexeme) {
+			case "has":
+			case "remove":
+				return 1;
+			case "keys":
+			case "length":
+				return 0;
+			default:
+				throw LoxCollection.undefinedProperty(name);
+		}
+	}
+
+	@Override
+	public Object callMethod (Interpreter interpreter, Token name, Object argument) {
+		switch (name.lexeme) {
+			case "has":
+				return entries.containsKey(ConcatString.flatten(argument));
+			case "remove":
+				return entries.remove(ConcatString.flatten(argument));
+			case "keys": {
+				interpreter.memory.charge(MemoryBudget.COLLECTION_BYTES + MemoryBudget.ELEMENT_BYTES * entries.size());
+				LoxList keys = new LoxList();
+				for (Object key : entries.keySet()) {
+					keys.add(key);
+				}
+				return keys;
+			}
+			case "length":
+				return (double) entries.size();
+			default:
+				throw LoxCollection.undefinedProperty(name);
+		}
+	}
+
+	@Override
+	public void appendTo (StringBuilder text, NumberFormatter formatter, Map<LoxCollection, Boolean> printing) {
+		if (printing.put(this, true) != null) {
+			text.append("{...}");
+			return;
+		}
+
+		text.append('{');
+		boolean first = true;
+
+		for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+			if (! first) {
+				text.append(", ");
+			}
+
+			first = false;
+			LoxCollection.appendElement(text, formatter, printing, entry.getKey());
+			text.append(": ");
+			LoxCollection.appendElement(text, formatter, printing, entry.getValue());
+		}
+
+		text.append('}');
+		printing.remove(this);
+	}
+
+	@Override
+	public String toString () {
+		return LoxCollection.toString(this);
+	}
+}
@@ -0,0 +1,113 @@
+package com.ajf.jlox;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//Sampling profiler for Lox code. The interpreter keeps a shadow stack of Lox frames (function name and current
+//line) and a daemon thread snapshots it periodically. Samples are written in the collapsed stack format used by
+//flamegraph.pl and speedscope: "frame;frame;frame count".
+public class LoxProfiler {
+	private static final String SCRIPT_FRAME = "<script>";
+
+	private final long intervalMillis;
+	private final Map<String, Long> stackCounts = new HashMap<>();
+	private Thread sampler;
+
+	//Written only by the interpreter thread and read without locking by the sampler. A sample may see a frame
+	//that is being pushed or popped, which is an acceptable error for a sampling profiler.
+	private String[] functionNames = new String[256];
+	private int[] lines = new int[256];
+	private int depth = 0;
+
+	public LoxProfiler (long intervalMillis) {
+		this.intervalMillis = intervalMillis;
+		functionNames[0] = SCRIPT_FRAME;
+	}
+
+	void enter (String functionName) {
+		int frame = depth + 1;
+
+		if (frame == functionNames.length) {
+			functionNames = Arrays.copyOf(functionNames, frame * 2);
+			lines = Arrays.copyOf(lines, frame * 2);
+		}
+
+		functionNames[frame] = functionName;
+		lines[frame] = 0;
+		depth = frame;
+	}
+
+	void exit () {
+		depth--;
+	}
+
+	void setLine (int line) {
+		lines[depth] = line;
+	}
+
+	public void start () {
+		sampler = new Thread(this::sampleUntilInterrupted, "lox-profiler");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	public void stop () {
+		if (sampler == null) {
+			return;
+		}
+
+		sampler.interrupt();
+
+		try {
+			sampler.join();
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+
+		sampler = null;
+	}
+
+	private void sampleUntilInterrupted () {
+		StringBuilder stack = new StringBuilder();
+
+		while (! Thread.currentThread().isInterrupted()) {
+			try {
+				Thread.sleep(intervalMillis);
+			} catch (InterruptedException exception) {
+				return;
+			}
+
+			String[] sampledNames = functionNames;
+			int[] sampledLines = lines;
+			int sampledDepth = Math.min(depth, Math.min(sampledNames.length, sampledLines.length) - 1);
+
+			stack.setLength(0);
+			for (int frame = 0; frame <= sampledDepth; frame++) {
+				if (frame > 0) {
+					stack.append(';');
+				}
+				stack.append(sampledNames[frame]).append(':').append(sampledLines[frame]);
+			}
+
+			synchronized (stackCounts) {
+				stackCounts.merge(stack.toString(), 1L, Long::sum);
+			}
+		}
+	}
+
+	public void writeCollapsedStacks (Path path) throws IOException {
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+			synchronized (stackCounts) {
+				for (Map.Entry<String, Long> entry : stackCounts.entrySet()) {
+					writer.println(entry.getKey() + " " + entry.getValue());
+				}
+			}
+		}
+	}
+}
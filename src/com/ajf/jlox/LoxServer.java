@@ -0,0 +1,175 @@
+package com.ajf.jlox;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//Long running interpreter process. Each connection on the Unix domain socket sends one absolute script path; the
+//server runs it in a fresh Interpreter and streams back frames of stdout and stderr followed by the exit code that
+//'jlox script' would have produced. The JVM, loaded classes, JIT code and ModuleCache stay warm across runs.
+//Requests are handled one at a time because Lox reports errors through static state and System.err, so each run
+//gets a time limit (--timeout, DEFAULT_TIMEOUT_MILLIS unless given) to keep one script from blocking every client.
+//
+//Frame layout: a tag byte, then for STDOUT and STDERR an int length and that many bytes, or for EXIT an int code.
+public final class LoxServer {
+	static final byte STDOUT = 1;
+	static final byte STDERR = 2;
+	static final byte EXIT = 3;
+	//Same code as a Lox runtime error, for a run the interpreter itself could not finish
+	static final int RUNTIME_ERROR = 70;
+	//sysexits EX_NOINPUT, for a script the server cannot read
+	static final int UNREADABLE_SCRIPT = 66;
+	static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+	public static void main (String[] args) throws IOException {
+		long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+		int argumentIndex = 0;
+
+		if (args.length == 2 && args[0].startsWith("--timeout=")) {
+			timeoutMillis = parseTimeout(args[0].substring("--timeout=".length()));
+			argumentIndex = 1;
+		} else if (args.length != 1) {
+			printUsageAndExit();
+		}
+
+		Path socketPath = Paths.get(args[argumentIndex]);
+		Files.deleteIfExists(socketPath);
+		LoxEvents.registerPeriodicCounters();
+
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(socketPath));
+			serveUntilClosed(server, timeoutMillis);
+		}
+	}
+
+	private static void printUsageAndExit () {
+		System.out.println("Usage: jlox-server [--timeout=ms] socket");
+		System.exit(64);
+	}
+
+	//Zero disables the limit
+	private static long parseTimeout (String value) {
+		try {
+			long timeoutMillis = Long.parseLong(value);
+
+			if (timeoutMillis >= 0) {
+				return timeoutMillis;
+			}
+		} catch (NumberFormatException exception) {
+			//Reported below
+		}
+
+		printUsageAndExit();
+		return 0;
+	}
+
+	//Handles connections one after another until the server channel is closed
+	static void serveUntilClosed (ServerSocketChannel server, long timeoutMillis) {
+		while (server.isOpen()) {
+			try (SocketChannel client = server.accept()) {
+				serve(client, timeoutMillis);
+			} catch (ClosedChannelException exception) {
+				//Normally the server channel itself, which ends the loop
+			} catch (IOException | UncheckedIOException exception) {
+				//The client went away mid run; keep serving the others
+				System.err.println("jlox-server: " + exception.getMessage());
+			}
+		}
+	}
+
+	private static void serve (SocketChannel client, long timeoutMillis) throws IOException {
+		DataInputStream input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+		DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Channels.newOutputStream(client), OutputSink.BUFFER_SIZE));
+		String script = input.readUTF();
+
+		Charset charset = Charset.defaultCharset();
+		Writer stdout = new BufferedWriter(new OutputStreamWriter(new FrameOutputStream(output, STDOUT), charset),
+										   OutputSink.BUFFER_SIZE);
+		Interpreter interpreter = new Interpreter(new WriterOutputSink(stdout));
+		interpreter.budget.setTimeLimitMillis(timeoutMillis);
+
+		PrintStream standardError = System.err;
+		PrintStream requestError = new PrintStream(new FrameOutputStream(output, STDERR), true, charset);
+		System.setErr(requestError);
+
+		int exitCode;
+		try {
+			exitCode = Lox.runScript(Paths.get(script), interpreter);
+		} catch (IOException exception) {
+			System.err.println("Could not read script '" + script + "': " + exception.getMessage());
+			exitCode = UNREADABLE_SCRIPT;
+		} catch (StackOverflowError error) {
+			//Unbounded Lox recursion; the stack has unwound by now, so only this request fails
+			System.err.println("Stack overflow.");
+			exitCode = RUNTIME_ERROR;
+		} catch (RuntimeException exception) {
+			System.err.println("Internal error: " + exception);
+			exitCode = RUNTIME_ERROR;
+		} finally {
+			//Restored first: flushing to a client that went away throws, and must not leave System.err on its socket
+			System.setErr(standardError);
+
+			try {
+				interpreter.output.flush();
+			} finally {
+				requestError.flush();
+			}
+		}
+
+		output.writeByte(EXIT);
+		output.writeInt(exitCode);
+		output.flush();
+	}
+
+	//Turns every write into one frame. Both streams sit behind buffers, so frames are large except for stderr,
+	//which flushes per line.
+	private static final class FrameOutputStream extends OutputStream {
+		private final DataOutputStream output;
+		private final byte tag;
+
+		FrameOutputStream (DataOutputStream output, byte tag) {
+			this.output = output;
+			this.tag = tag;
+		}
+
+		@Override
+		public void write (int value) throws IOException {
+			write(new byte[]{(byte) value}, 0, 1);
+		}
+
+		@Override
+		public void write (byte[] bytes, int offset, int length) throws IOException {
+			if (length == 0) {
+				return;
+			}
+
+			output.writeByte(tag);
+			output.writeInt(length);
+			output.write(bytes, offset, length);
+		}
+
+		@Override
+		public void flush () throws IOException {
+			output.flush();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.ajf.jlox;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Result of the memoize() native: caches a callable's results keyed on its argument values, evicting the least
+//recently used entry beyond the capacity. Arguments compare like Lox '==', so instances match by identity.
+//Assigning the result back to the function's own name, 'fib = memoize(fib);', also memoizes recursive calls.
+final class MemoizedFunction implements LoxCallable {
+	static final int DEFAULT_CAPACITY = 10_000;
+
+	private final LoxCallable function;
+	private final int capacity;
+	private final Map<Object, Object> cache;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	MemoizedFunction (LoxCallable function, int capacity) {
+		this.function = function;
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry (Map.Entry<Object, Object> eldest) {
+				if (size() > capacity) {
+					evictions++;
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	LoxCallable function () {
+		return function;
+	}
+
+	int capacity () {
+		return capacity;
+	}
+
+	@Override
+	public Object call (Interpreter interpreter, List<Object> arguments) {
+		Object key = keyFor(arguments);
+		Object result = cache.get(key);
+
+		if (result != null || cache.containsKey(key)) {
+			hits++;
+			return result;
+		}
+
+		misses++;
+		result = function.call(interpreter, arguments);
+
+		//A full cache evicts an entry for this one, so only a growing cache holds more memory
+		if (cache.size() < capacity) {
+			interpreter.memory.charge(MemoryBudget.ENTRY_BYTES);
+		}
+		cache.put(key, result);
+		return result;
+	}
+
+	//Single arguments are their own key; longer argument lists compare element by element
+	private static Object keyFor (List<Object> arguments) {
+		if (arguments.size() == 1) {
+			return ConcatString.flatten(arguments.get(0));
+		}
+
+		Object[] key = new Object[arguments.size()];
+		for (int i = 0; i < key.length; i++) {
+			key[i] = ConcatString.flatten(arguments.get(i));
+		}
+
+		return Arrays.asList(key);
+	}
+
+	LoxMap stats () {
+		LoxMap stats = new LoxMap();
+		stats.put("hits", (double) hits);
+		stats.put("misses", (double) misses);
+		stats.put("evictions", (double) evictions);
+		stats.put("size", (double) cache.size());
+		return stats;
+	}
+
+	@Override
+	public int arity () {
+		return function.arity();
+	}
+
+	@Override
+	public String toString () {
+		return "<memoized " + function + ">";
+	}
+}
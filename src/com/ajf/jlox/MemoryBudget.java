@@ -0,0 +1,63 @@
+package com.ajf.jlox;
+
+//Approximate count of the bytes a script's data occupies, with an optional limit on the total. Sizes are estimates
+//for a 64-bit JVM with compressed oops.
+//Retained bytes are for data that can outlive the code creating it: instances, fields, lists, map entries,
+//concatenated strings, globals and environments captured by closures. They are never given back, as the interpreter
+//cannot see the collector free them. Frame bytes are the environments and local variables of the calls and blocks
+//currently running; they are given back when the call or block ends, so recursion costs only its current depth.
+public class MemoryBudget {
+	static final long ENVIRONMENT_BYTES = 152;
+	static final long VARIABLE_BYTES = 32;
+	static final long INSTANCE_BYTES = 40;
+	static final long FIELD_BYTES = 8;
+	static final long STRING_BYTES = 40;
+	static final long COLLECTION_BYTES = 64;
+	static final long ELEMENT_BYTES = 8;
+	static final long ENTRY_BYTES = 48;
+
+	private long retainedBytes = 0;
+	private long frameBytes = 0;
+	private long limitBytes = Long.MAX_VALUE;
+
+	public long getUsedBytes () {
+		return retainedBytes + frameBytes;
+	}
+
+	public void setLimit (long limitBytes) {
+		if (limitBytes < 0) {
+			throw new IllegalArgumentException("Memory limit must not be negative.");
+		}
+
+		this.limitBytes = limitBytes;
+	}
+
+	void charge (long bytes) {
+		retainedBytes += bytes;
+	}
+
+	//Sites without a token only charge; the limit is enforced at the next site that can report a line
+	void charge (long bytes, Token site) {
+		retainedBytes += bytes;
+		check(site);
+	}
+
+	long frameMark () {
+		return frameBytes;
+	}
+
+	void chargeFrame (long bytes) {
+		frameBytes += bytes;
+	}
+
+	//Gives back everything charged to frames since the mark was taken
+	void releaseFrames (long mark) {
+		frameBytes = mark;
+	}
+
+	void check (Token site) {
+		if (retainedBytes + frameBytes > limitBytes) {
+			throw new RuntimeError(site, "Memory limit of " + limitBytes + " bytes exceeded.");
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.ajf.jlox;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Parsed and resolved modules shared by every interpreter in the process. An entry is reused while the file's
+//modification time is unchanged; a newer file is read, parsed and resolved again on its next import.
+final class ModuleCache {
+	private static final int MAX_PARSE_DIAGNOSTICS = 100;
+	private static final Map<Path, Module> modules = new ConcurrentHashMap<>();
+
+	private ModuleCache () {
+	}
+
+	static Module load (Path path, Token importToken) {
+		FileTime modified;
+		String source;
+
+		try {
+			modified = Files.getLastModifiedTime(path);
+			Module cached = modules.get(path);
+
+			if (cached != null && cached.modified.equals(modified)) {
+				return cached;
+			}
+
+			source = new String(Files.readAllBytes(path), Charset.defaultCharset());
+		} catch (IOException exception) {
+			throw new RuntimeError(importToken, "Could not read module '" + path + "'.");
+		}
+
+		//Errors go to the import's runtime error, never to Lox.hadError, which belongs to the importing script
+		Diagnostics diagnostics = new Diagnostics(MAX_PARSE_DIAGNOSTICS);
+		List<Token> tokens = new Scanner(source, diagnostics).scanTokens();
+		List<Statement> statements = new Parser(tokens, diagnostics).parse();
+
+		if (diagnostics.hasErrors()) {
+			diagnostics.report();
+			throw new RuntimeError(importToken, "Could not parse module '" + path + "'.");
+		}
+
+		Resolution resolution = new Resolution();
+		new Resolver(resolution, path.getParent(), diagnostics).resolve(statements);
+
+		if (diagnostics.hasErrors()) {
+			diagnostics.report();
+			throw new RuntimeError(importToken, "Could not resolve module '" + path + "'.");
+		}
+
+		Module module = new Module(modified, statements, resolution);
+		modules.put(path, module);
+		return module;
+	}
+
+	//Drops every cached module, so the next import of each reads the file again
+	static void clear () {
+		modules.clear();
+	}
+
+	static final class Module {
+		final FileTime modified;
+		final List<Statement> statements;
+		final Resolution resolution;
+
+		Module (FileTime modified, List<Statement> statements, Resolution resolution) {
+			this.modified = modified;
+			this.statements = statements;
+			this.resolution = resolution;
+		}
+	}
+}
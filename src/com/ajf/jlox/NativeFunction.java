@@ -0,0 +1,306 @@
+package com.ajf.jlox;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+//A static Java method exposed to Lox. Argument and result conversions are composed into the method handle once,
+//when the native is bound, so a call is a single invokeExact on Objects with no reflection or argument arrays.
+//Calls with up to MAX_SPECIALIZED_ARITY arguments can also bypass the argument list entirely (see call1 etc.).
+//A method whose first parameter is an Interpreter receives the calling interpreter there; it is not a Lox argument.
+//Natives defined by bindAll are bound on their first call instead, because building method handles pulls in a
+//large part of java.lang.invoke and most scripts call few natives, or none.
+final class NativeFunction implements LoxCallable {
+	static final int MAX_SPECIALIZED_ARITY = 3;
+
+	private final String name;
+	private final int arity;
+	//Type (Interpreter, Object, ...)Object with one Object per Lox argument; null until a lazily bound native is first called
+	private MethodHandle handle;
+	private final MethodHandles.Lookup lookup;
+	private final Method method;
+
+	private NativeFunction (String name, int arity, MethodHandle handle) {
+		this.name = name;
+		this.arity = arity;
+		this.handle = handle;
+		this.lookup = null;
+		this.method = null;
+	}
+
+	private NativeFunction (MethodHandles.Lookup lookup, Method method) {
+		this.name = method.getName();
+		this.arity = arity(method.getParameterTypes());
+		this.lookup = lookup;
+		this.method = method;
+	}
+
+	static NativeFunction bind (String name, MethodHandle target) {
+		return new NativeFunction(name, arity(target.type().parameterArray()), adapt(name, target));
+	}
+
+	private static boolean takesInterpreter (Class<?>[] parameterTypes) {
+		return parameterTypes.length > 0 && parameterTypes[0] == Interpreter.class;
+	}
+
+	private static int arity (Class<?>[] parameterTypes) {
+		return takesInterpreter(parameterTypes) ? parameterTypes.length - 1 : parameterTypes.length;
+	}
+
+	private static MethodHandle adapt (String name, MethodHandle target) {
+		MethodType type = target.type();
+		MethodHandle adapted = target;
+		int first = 0;
+
+		if (takesInterpreter(type.parameterArray())) {
+			first = 1;
+		} else {
+			adapted = MethodHandles.dropArguments(adapted, 0, Interpreter.class);
+		}
+
+		for (int i = first; i < type.parameterCount(); i++) {
+			MethodHandle argumentConverter = argumentConverter(name, type.parameterType(i));
+
+			if (argumentConverter != null) {
+				adapted = MethodHandles.filterArguments(adapted, i + 1 - first, argumentConverter);
+			}
+		}
+
+		MethodHandle resultConverter = resultConverter(name, type.returnType());
+		if (resultConverter != null) {
+			adapted = MethodHandles.filterReturnValue(adapted, resultConverter);
+		}
+
+		int arity = type.parameterCount() - first;
+		return adapted.asType(MethodType.genericMethodType(arity).insertParameterTypes(0, Interpreter.class));
+	}
+
+	//Defines every public static method of the library under its own name. Signatures are checked here so a bad
+	//library still fails at startup; the method handles are built on first call.
+	static void bindAll (MethodHandles.Lookup lookup, Class<?> library, BiConsumer<String, Object> define) {
+		for (Method method : library.getDeclaredMethods()) {
+			if (! Modifier.isPublic(method.getModifiers()) || ! Modifier.isStatic(method.getModifiers())) {
+				continue;
+			}
+
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			for (int i = takesInterpreter(parameterTypes) ? 1 : 0; i < parameterTypes.length; i++) {
+				checkParameterType(method.getName(), parameterTypes[i]);
+			}
+			checkReturnType(method.getName(), method.getReturnType());
+
+			define.accept(method.getName(), new NativeFunction(lookup, method));
+		}
+	}
+
+	private MethodHandle handle () {
+		if (handle == null) {
+			try {
+				handle = adapt(name, lookup.unreflect(method));
+			} catch (IllegalAccessException exception) {
+				throw new IllegalArgumentException("Cannot access native " + method, exception);
+			}
+		}
+
+		return handle;
+	}
+
+	private static void checkParameterType (String name, Class<?> parameterType) {
+		if (parameterType != double.class && parameterType != int.class && parameterType != long.class
+				&& parameterType != boolean.class && parameterType != String.class && parameterType != Object.class) {
+			throw new IllegalArgumentException("Native " + name + " has unsupported parameter type " + parameterType);
+		}
+	}
+
+	private static void checkReturnType (String name, Class<?> returnType) {
+		if (returnType != int.class && returnType != long.class && returnType != double.class
+				&& returnType != boolean.class && returnType != String.class && returnType != Object.class
+				&& returnType != void.class) {
+			throw new IllegalArgumentException("Native " + name + " has unsupported return type " + returnType);
+		}
+	}
+
+	private static MethodHandle argumentConverter (String name, Class<?> parameterType) {
+		checkParameterType(name, parameterType);
+
+		if (parameterType == double.class) {
+			return Converters.TO_NUMBER;
+		} else if (parameterType == int.class) {
+			return Converters.TO_INT;
+		} else if (parameterType == long.class) {
+			return Converters.TO_LONG;
+		} else if (parameterType == boolean.class) {
+			return Converters.TO_BOOLEAN;
+		} else if (parameterType == String.class) {
+			return Converters.TO_STRING;
+		}
+
+		return null;
+	}
+
+	private static MethodHandle resultConverter (String name, Class<?> returnType) {
+		checkReturnType(name, returnType);
+
+		if (returnType == int.class) {
+			return Converters.FROM_INT;
+		} else if (returnType == long.class) {
+			return Converters.FROM_LONG;
+		}
+
+		//Boxed, passed through or returned as nil by asType
+		return null;
+	}
+
+	@Override
+	public Object call (Interpreter interpreter, List<Object> arguments) {
+		switch (arity) {
+			case 0:
+				return call0(interpreter);
+			case 1:
+				return call1(interpreter, arguments.get(0));
+			case 2:
+				return call2(interpreter, arguments.get(0), arguments.get(1));
+			case 3:
+				return call3(interpreter, arguments.get(0), arguments.get(1), arguments.get(2));
+			default:
+				try {
+					List<Object> handleArguments = new ArrayList<>(arguments.size() + 1);
+					handleArguments.add(interpreter);
+					handleArguments.addAll(arguments);
+					return handle().invokeWithArguments(handleArguments);
+				} catch (Throwable throwable) {
+					throw failure(interpreter, throwable);
+				}
+		}
+	}
+
+	Object call0 (Interpreter interpreter) {
+		try {
+			return (Object) handle().invokeExact(interpreter);
+		} catch (Throwable throwable) {
+			throw failure(interpreter, throwable);
+		}
+	}
+
+	Object call1 (Interpreter interpreter, Object first) {
+		try {
+			return (Object) handle().invokeExact(interpreter, first);
+		} catch (Throwable throwable) {
+			throw failure(interpreter, throwable);
+		}
+	}
+
+	Object call2 (Interpreter interpreter, Object first, Object second) {
+		try {
+			return (Object) handle().invokeExact(interpreter, first, second);
+		} catch (Throwable throwable) {
+			throw failure(interpreter, throwable);
+		}
+	}
+
+	Object call3 (Interpreter interpreter, Object first, Object second, Object third) {
+		try {
+			return (Object) handle().invokeExact(interpreter, first, second, third);
+		} catch (Throwable throwable) {
+			throw failure(interpreter, throwable);
+		}
+	}
+
+	//Exceptions from conversions and from the Java method become Lox runtime errors at the call site
+	private RuntimeException failure (Interpreter interpreter, Throwable throwable) {
+		if (throwable instanceof RuntimeError) {
+			return (RuntimeError) throwable;
+		} else if (throwable instanceof Error) {
+			throw (Error) throwable;
+		}
+
+		String message = throwable.getMessage() == null ? throwable.getClass().getSimpleName() : throwable.getMessage();
+		return new RuntimeError(interpreter.callSite, name + "(): " + message);
+	}
+
+	@Override
+	public int arity () {
+		return arity;
+	}
+
+	@Override
+	public String toString () {
+		return "<native fn>";
+	}
+
+	//Initialized with the first native bound
+	private static final class Converters {
+		static final MethodHandle TO_NUMBER = converter("toNumber", double.class, Object.class);
+		static final MethodHandle TO_INT = converter("toInt", int.class, Object.class);
+		static final MethodHandle TO_LONG = converter("toLong", long.class, Object.class);
+		static final MethodHandle TO_BOOLEAN = converter("toBoolean", boolean.class, Object.class);
+		static final MethodHandle TO_STRING = converter("toJavaString", String.class, Object.class);
+		static final MethodHandle FROM_INT = converter("fromInt", Object.class, int.class);
+		static final MethodHandle FROM_LONG = converter("fromLong", Object.class, long.class);
+
+		private static MethodHandle converter (String name, Class<?> returnType, Class<?> parameterType) {
+			try {
+				return MethodHandles.lookup().findStatic(NativeFunction.class, name, MethodType.methodType(returnType, parameterType));
+			} catch (ReflectiveOperationException exception) {
+				throw new ExceptionInInitializerError(exception);
+			}
+		}
+	}
+
+	private static double toNumber (Object value) {
+		if (value instanceof Double) {
+			return (Double) value;
+		}
+
+		throw new IllegalArgumentException("Expected a number.");
+	}
+
+	private static int toInt (Object value) {
+		double number = toNumber(value);
+
+		if (number != (int) number) {
+			throw new IllegalArgumentException("Expected an integer.");
+		}
+
+		return (int) number;
+	}
+
+	private static long toLong (Object value) {
+		double number = toNumber(value);
+
+		if (number != (long) number) {
+			throw new IllegalArgumentException("Expected an integer.");
+		}
+
+		return (long) number;
+	}
+
+	private static boolean toBoolean (Object value) {
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+
+		throw new IllegalArgumentException("Expected a boolean.");
+	}
+
+	private static String toJavaString (Object value) {
+		if (ConcatString.isString(value)) {
+			return value.toString();
+		}
+
+		throw new IllegalArgumentException("Expected a string.");
+	}
+
+	private static Object fromInt (int value) {
+		return (double) value;
+	}
+
+	private static Object fromLong (long value) {
+		return (double) value;
+	}
+}
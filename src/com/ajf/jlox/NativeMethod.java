@@ -0,0 +1,42 @@
+package com.ajf.jlox;
+
+import java.util.List;
+import java.util.function.BiFunction;
+
+//Method of a built-in List or Map, bound to its receiver when the property is read
+final class NativeMethod implements LoxCallable {
+	private final Object receiver;
+	private final String name;
+	private final int arity;
+	private final BiFunction<Interpreter, List<Object>, Object> body;
+
+	NativeMethod (Object receiver, String name, int arity, BiFunction<Interpreter, List<Object>, Object> body) {
+		this.receiver = receiver;
+		this.name = name;
+		this.arity = arity;
+		this.body = body;
+	}
+
+	Object receiver () {
+		return receiver;
+	}
+
+	String name () {
+		return name;
+	}
+
+	@Override
+	public Object call (Interpreter interpreter, List<Object> arguments) {
+		return body.apply(interpreter, arguments);
+	}
+
+	@Override
+	public int arity () {
+		return arity;
+	}
+
+	@Override
+	public String toString () {
+		return "<native method " + name + ">";
+	}
+}
@@ -0,0 +1,109 @@
+package com.ajf.jlox;
+
+//Formats Lox numbers into a reusable buffer, producing exactly Double.toString with a trailing ".0" removed.
+//Integral values are written as long digits. Fractional values in Double.toString's plain notation range are
+//written as the shortest decimal that converts back to the same double: with at most 15 significant digits that
+//decimal is unique, so it is the one Double.toString picks. Everything else falls back to Double.toString.
+final class NumberFormatter {
+	private static final int MAX_DIGITS = 15;
+	private static final double MIN_PLAIN = 1e-3;
+	private static final double MAX_PLAIN = 1e7;
+	private static final long MAX_SIGNIFICAND = 1_000_000_000_000_000L;
+	private static final long[] LONG_POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+	private static final double[] POWERS_OF_TEN = new double[MAX_DIGITS + 1];
+
+	static {
+		long power = 1;
+		for (int exponent = 0; exponent <= MAX_DIGITS; exponent++) {
+			LONG_POWERS_OF_TEN[exponent] = power;
+			POWERS_OF_TEN[exponent] = power;
+			power *= 10;
+		}
+	}
+
+	//Long enough for any Double.toString result
+	private final char[] buffer = new char[32];
+
+	char[] buffer () {
+		return buffer;
+	}
+
+	//Writes the number to the start of buffer() and returns its length
+	int format (double value) {
+		if (value == 0) {
+			return 1 / value < 0 ? writeText("-0") : writeText("0");
+		}
+
+		double magnitude = Math.abs(value);
+		if (! (magnitude >= MIN_PLAIN && magnitude < MAX_PLAIN)) {
+			return formatWithDoubleToString(value);
+		}
+
+		int length = 0;
+		if (value < 0) {
+			buffer[length++] = '-';
+		}
+
+		if (magnitude == (long) magnitude) {
+			return writeDigits((long) magnitude, length);
+		}
+
+		for (int fractionDigits = 1; fractionDigits <= MAX_DIGITS; fractionDigits++) {
+			long significand = Math.round(magnitude * POWERS_OF_TEN[fractionDigits]);
+
+			if (significand >= MAX_SIGNIFICAND) {
+				break;
+			}
+
+			//Both operands are exact doubles, so the division is the correctly rounded value of the decimal
+			if (significand / POWERS_OF_TEN[fractionDigits] == magnitude) {
+				return writeDecimal(significand, fractionDigits, length);
+			}
+		}
+
+		return formatWithDoubleToString(value);
+	}
+
+	private int writeDecimal (long significand, int fractionDigits, int length) {
+		length = writeDigits(significand / LONG_POWERS_OF_TEN[fractionDigits], length);
+		buffer[length++] = '.';
+
+		long fraction = significand % LONG_POWERS_OF_TEN[fractionDigits];
+		for (int position = length + fractionDigits - 1; position >= length; position--) {
+			buffer[position] = (char) ('0' + fraction % 10);
+			fraction /= 10;
+		}
+
+		return length + fractionDigits;
+	}
+
+	private int writeDigits (long value, int length) {
+		int digitCount = 1;
+		while (digitCount < LONG_POWERS_OF_TEN.length && value >= LONG_POWERS_OF_TEN[digitCount]) {
+			digitCount++;
+		}
+
+		for (int position = length + digitCount - 1; position >= length; position--) {
+			buffer[position] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+
+		return length + digitCount;
+	}
+
+	//NaN, infinities and exponent notation are rare enough to keep the allocating path
+	private int formatWithDoubleToString (double value) {
+		String text = Double.toString(value);
+
+		if (text.endsWith(".0")) {
+			text = text.substring(0, text.length() - 2);
+		}
+
+		return writeText(text);
+	}
+
+	private int writeText (String text) {
+		text.getChars(0, text.length(), buffer, 0);
+		return text.length();
+	}
+}
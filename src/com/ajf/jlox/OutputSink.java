@@ -0,0 +1,48 @@
+package com.ajf.jlox;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+//Destination for the output of print statements. Implementations buffer; the interpreter flushes at the end of
+//every run and before a runtime error is reported.
+public interface OutputSink {
+	int BUFFER_SIZE = 64 * 1024;
+
+	void printLine (CharSequence text);
+
+	void printLine (char[] characters, int offset, int length);
+
+	void flush ();
+
+	//Large buffer straight over the stdout file descriptor, bypassing System.out's per-line locking and flushing
+	static OutputSink standardOutput () {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Charset.defaultCharset());
+		return new WriterOutputSink(new BufferedWriter(writer, BUFFER_SIZE));
+	}
+
+	static OutputSink discarding () {
+		return new WriterOutputSink(Writer.nullWriter());
+	}
+
+	//Flushes the sink from a daemon thread, for long running scripts whose output should appear while they run
+	static void flushPeriodically (OutputSink sink, long intervalMillis) {
+		Thread flusher = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(intervalMillis);
+				} catch (InterruptedException exception) {
+					return;
+				}
+
+				sink.flush();
+			}
+		}, "lox-output-flusher");
+
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+}
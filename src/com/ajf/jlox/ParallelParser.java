@@ -0,0 +1,167 @@
+package com.ajf.jlox;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import static com.ajf.jlox.TokenType.*;
+
+//Splits the token stream at top-level declaration boundaries and parses the chunks concurrently.
+//Chunk parsers stop at their first error; if any chunk fails the whole stream is reparsed serially so error output matches Parser.
+public class ParallelParser {
+	private static final int DEFAULT_CHUNK_SIZE = 16384;
+
+	private final List<Token> tokens;
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	ParallelParser (List<Token> tokens) {
+		this(tokens, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+
+	ParallelParser (List<Token> tokens, ForkJoinPool pool, int chunkSize) {
+		this.tokens = tokens;
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+
+	public ParseResult parse (int maxDiagnostics) {
+		List<Integer> chunkStarts = findChunkStarts();
+
+		if (chunkStarts.size() < 2) {
+			return Parser.parseWithDiagnostics(tokens, maxDiagnostics);
+		}
+
+		int chunkCount = chunkStarts.size();
+		List<List<Statement>> parsedChunks = new ArrayList<>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			parsedChunks.add(null);
+		}
+
+		ParseChunksTask task = new ParseChunksTask(chunkStarts, parsedChunks, 0, chunkCount);
+		pool.invoke(task);
+
+		if (task.failed()) {
+			return Parser.parseWithDiagnostics(tokens, maxDiagnostics);
+		}
+
+		int statementCount = 0;
+		for (List<Statement> chunk : parsedChunks) {
+			statementCount += chunk.size();
+		}
+
+		List<Statement> statements = new ArrayList<>(statementCount);
+		for (List<Statement> chunk : parsedChunks) {
+			statements.addAll(chunk);
+		}
+
+		return new ParseResult(statements, new Diagnostics(maxDiagnostics));
+	}
+
+	//A chunk starts at a depth zero token after ';' or '}' that starts a declaration, like Parser.synchronize
+	private List<Integer> findChunkStarts () {
+		List<Integer> chunkStarts = new ArrayList<>();
+		chunkStarts.add(0);
+
+		int depth = 0;
+		int currentChunkStart = 0;
+		int endOfFileIndex = tokens.size() - 1;
+
+		for (int i = 0; i < endOfFileIndex; i++) {
+			Token token = tokens.get(i);
+
+			if (depth == 0 && i - currentChunkStart >= chunkSize && Parser.startsDeclaration(token.type)) {
+				TokenType previousType = tokens.get(i - 1).type;
+
+				if (previousType == SEMICOLON || previousType == RIGHT_BRACE) {
+					chunkStarts.add(i);
+					currentChunkStart = i;
+				}
+			}
+
+			switch (token.type) {
+				case LEFT_BRACE:
+				case LEFT_PAREN:
+					depth++;
+					break;
+				case RIGHT_BRACE:
+				case RIGHT_PAREN:
+					depth--;
+					break;
+			}
+		}
+
+		return chunkStarts;
+	}
+
+	private class ParseChunksTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Integer> chunkStarts;
+		private final List<List<Statement>> parsedChunks;
+		private final int firstChunk;
+		private final int lastChunk;
+		private boolean failed;
+
+		ParseChunksTask (List<Integer> chunkStarts, List<List<Statement>> parsedChunks, int firstChunk, int lastChunk) {
+			this.chunkStarts = chunkStarts;
+			this.parsedChunks = parsedChunks;
+			this.firstChunk = firstChunk;
+			this.lastChunk = lastChunk;
+		}
+
+		@Override
+		protected void compute () {
+			if (lastChunk - firstChunk == 1) {
+				int start = chunkStarts.get(firstChunk);
+				int end = firstChunk + 1 < chunkStarts.size() ? chunkStarts.get(firstChunk + 1) : tokens.size() - 1;
+
+				Parser parser = new Parser(new ChunkTokens(tokens, start, end), new Diagnostics(1));
+				parsedChunks.set(firstChunk, parser.parse());
+				failed = parser.hadError();
+				return;
+			}
+
+			int middle = (firstChunk + lastChunk) >>> 1;
+			ParseChunksTask left = new ParseChunksTask(chunkStarts, parsedChunks, firstChunk, middle);
+			ParseChunksTask right = new ParseChunksTask(chunkStarts, parsedChunks, middle, lastChunk);
+			invokeAll(left, right);
+			failed = left.failed || right.failed;
+		}
+
+		boolean failed () {
+			return failed;
+		}
+	}
+
+	//View of tokens[start, end) followed by an EOF token so chunks are parsed without copying
+	private static class ChunkTokens extends AbstractList<Token> {
+		private final List<Token> tokens;
+		private final int start;
+		private final int length;
+		private final Token endOfFile;
+
+		ChunkTokens (List<Token> tokens, int start, int end) {
+			this.tokens = tokens;
+			this.start = start;
+			this.length = end - start;
+			this.endOfFile = new Token(EOF, "", null, tokens.get(end).line);
+		}
+
+		@Override
+		public Token get (int index) {
+			if (index < length) {
+				return tokens.get(start + index);
+			}
+
+			return endOfFile;
+		}
+
+		@Override
+		public int size () {
+			return length + 1;
+		}
+	}
+}
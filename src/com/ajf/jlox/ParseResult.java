@@ -0,0 +1,18 @@
+package com.ajf.jlox;
+
+import java.util.List;
+
+//Statements that parsed successfully, plus the errors found in the rest of the source
+public class ParseResult {
+	final List<Statement> statements;
+	final Diagnostics diagnostics;
+
+	ParseResult (List<Statement> statements, Diagnostics diagnostics) {
+		this.statements = statements;
+		this.diagnostics = diagnostics;
+	}
+
+	public boolean hasErrors () {
+		return diagnostics.hasErrors();
+	}
+}
@@ -7,23 +7,60 @@ import java.util.List;
 import static com.ajf.jlox.TokenType.*;
 
 public class Parser {
+	private static final ParseError PARSE_ERROR = new ParseError();
+
 	private final List<Token> tokens;
+	private final Diagnostics diagnostics;
 	private int nextToBeConsumedTokenIndex = 0;
+	private boolean hadError = false;
+	//Child lists of the nodes built are copied into exactly sized immutable lists, which for large programs hold
+	//far less heap than growable ArrayLists. Only turned off to measure the difference (AstHeapBenchmark).
+	boolean compactLists = true;
 
 	Parser (List<Token> tokens) {
+		this(tokens, null);
+	}
+
+	//Errors are recorded into diagnostics instead of being reported through Lox.error
+	Parser (List<Token> tokens, Diagnostics diagnostics) {
 		this.tokens = tokens;
+		this.diagnostics = diagnostics;
+	}
+
+	static ParseResult parseWithDiagnostics (List<Token> tokens, int maxDiagnostics) {
+		Diagnostics diagnostics = new Diagnostics(maxDiagnostics);
+		List<Statement> statements = new Parser(tokens, diagnostics).parse();
+		return new ParseResult(statements, diagnostics);
 	}
 
 	public List<Statement> parse () {
 		List<Statement> statements = new ArrayList<>();
 
-		while (isNotAtEndOfFile()) {
-			statements.add(declaration());
+		try {
+			while (isNotAtEndOfFile()) {
+				addStatement(statements, declaration());
+			}
+		} catch (ParseError error) {
+			//Diagnostic limit reached, return what was parsed so far
 		}
 
 		return statements;
 	}
 
+	boolean hadError () {
+		return hadError;
+	}
+
+	private <T> List<T> finish (List<T> list) {
+		return compactLists ? List.copyOf(list) : list;
+	}
+
+	private void addStatement (List<Statement> statements, Statement statement) {
+		if (statement != null) {
+			statements.add(statement);
+		}
+	}
+
 	private Statement declaration () {
 		try {
 			if (matchTokenTypeWithNextToBeConsumedToken(VAR)) {
@@ -32,6 +69,10 @@ public class Parser {
 
 			return statement();
 		} catch (ParseError error) {
+			if (diagnosticLimitReached()) {
+				throw error;
+			}
+
 			synchronize();
 			return null;
 		}
@@ -68,6 +109,8 @@ public class Parser {
 			return returnStatement();
 		} else if (matchTokenTypeWithNextToBeConsumedToken(CLASS)) {
 			return classDeclaration();
+		} else if (matchTokenTypeWithNextToBeConsumedToken(IMPORT)) {
+			return importStatement();
 		}
 
 		return expressionStatement();
@@ -76,16 +119,22 @@ public class Parser {
 	private Statement classDeclaration () {
 		Token className = checkForToken(IDENTIFIER, "Expect class name.");
 
-		checkForToken(LEFT_BRACE, "Expect '(' before class body.");
+		Expression.VariableExpression superclass = null;
+		if (matchTokenTypeWithNextToBeConsumedToken(LESS)) {
+			checkForToken(IDENTIFIER, "Expect superclass name.");
+			superclass = new Expression.VariableExpression(getMostRecentlyConsumedToken());
+		}
+
+		checkForToken(LEFT_BRACE, "Expect '{' before class body.");
 
 		List<Statement.FunctionStatement> methods = new ArrayList<>();
-		while (getMostRecentlyConsumedToken().type != RIGHT_BRACE && isNotAtEndOfFile()) {
+		while (getNextToBeConsumedToken().type != RIGHT_BRACE && isNotAtEndOfFile()) {
 			methods.add((Statement.FunctionStatement) function("method"));
 		}
 
-		checkForToken(RIGHT_BRACE, "Expect ')' after class body");
+		checkForToken(RIGHT_BRACE, "Expect '}' after class body.");
 
-		return new Statement.ClassStatement(className, methods);
+		return new Statement.ClassStatement(className, superclass, finish(methods));
 	}
 
 	private Statement returnStatement () {
@@ -121,10 +170,11 @@ public class Parser {
 		checkForToken(RIGHT_PAREN, "Expect ')' after parameters.");
 		checkForToken(LEFT_BRACE, "Expect '{' before " + kind + " body.");
 		List<Statement> body = block();
-		return new Statement.FunctionStatement(name, parameters, body);
+		return new Statement.FunctionStatement(name, finish(parameters), body);
 	}
 
 	private Statement forStatement () {
+		Token keyword = getMostRecentlyConsumedToken();
 		checkForToken(LEFT_PAREN, "Expect '(' after 'for'.");
 
 		Statement initializer;
@@ -161,7 +211,7 @@ public class Parser {
 			condition = new Expression.LiteralExpression(true);
 		}
 
-		body = new Statement.WhileStatement(condition, body);
+		body = new Statement.WhileStatement(keyword, condition, body);
 
 		if (initializer != null) {
 			body = new Statement.BlockStatement(Arrays.asList(initializer, body));
@@ -171,11 +221,12 @@ public class Parser {
 	}
 
 	private Statement whileStatement () {
+		Token keyword = getMostRecentlyConsumedToken();
 		checkForToken(LEFT_PAREN, "Expect '(' after 'while'.");
 		Expression condition = expression();
 		checkForToken(RIGHT_PAREN, "Expect ')' after 'while'.");
 		Statement body = statement();
-		return new Statement.WhileStatement(condition, body);
+		return new Statement.WhileStatement(keyword, condition, body);
 	}
 
 	private Statement ifStatement () {
@@ -201,6 +252,13 @@ public class Parser {
 		return new Statement.ExpressionStatement(expression);
 	}
 
+	private Statement importStatement () {
+		Token keyword = getMostRecentlyConsumedToken();
+		Token path = checkForToken(STRING, "Expect module path string after 'import'.");
+		checkForToken(SEMICOLON, "Expect ';' after import.");
+		return new Statement.ImportStatement(keyword, (String) path.literal);
+	}
+
 	private Statement printStatement () {
 		Expression value = expression();
 		checkForToken(SEMICOLON, "Expect ';' after value.");
@@ -211,11 +269,11 @@ public class Parser {
 		List<Statement> statements = new ArrayList<>();
 
 		while ((getNextToBeConsumedToken().type != RIGHT_BRACE) && isNotAtEndOfFile()) {
-			statements.add(declaration());
+			addStatement(statements, declaration());
 		}
 
 		checkForToken(RIGHT_BRACE, "Expect '}' after block.");
-		return statements;
+		return finish(statements);
 	}
 
 	private Expression expression () {
@@ -236,6 +294,10 @@ public class Parser {
 				Expression.GetExpression get = (Expression.GetExpression) expression;
 
 				return new Expression.SetExpression(get.object, get.className, value);
+			} else if (expression instanceof Expression.IndexExpression) {
+				Expression.IndexExpression index = (Expression.IndexExpression) expression;
+
+				return new Expression.IndexSetExpression(index.object, index.bracket, index.index, value);
 			}
 
 			error(equals, "Invalid assignment target.");
@@ -335,6 +397,10 @@ public class Parser {
 			} else if (matchTokenTypeWithNextToBeConsumedToken(DOT)) {
 				Token name = checkForToken(IDENTIFIER, "Expect property name after '.'");
 				expression = new Expression.GetExpression(expression, name);
+			} else if (matchTokenTypeWithNextToBeConsumedToken(LEFT_BRACKET)) {
+				Expression index = expression();
+				Token bracket = checkForToken(RIGHT_BRACKET, "Expect ']' after index.");
+				expression = new Expression.IndexExpression(expression, bracket, index);
 			} else {
 				break;
 			}
@@ -357,7 +423,7 @@ public class Parser {
 
 		Token paren = checkForToken(RIGHT_PAREN, "Expect ')' after arguments.");
 
-		return new Expression.CallExpression(callee, paren, arguments);
+		return new Expression.CallExpression(callee, paren, finish(arguments));
 	}
 
 	private Expression primary () {
@@ -375,6 +441,17 @@ public class Parser {
 			return new Expression.LiteralExpression(getMostRecentlyConsumedToken().literal);
 		}
 
+		if (matchTokenTypeWithNextToBeConsumedToken(THIS)) {
+			return new Expression.ThisExpression(getMostRecentlyConsumedToken());
+		}
+
+		if (matchTokenTypeWithNextToBeConsumedToken(SUPER)) {
+			Token keyword = getMostRecentlyConsumedToken();
+			checkForToken(DOT, "Expect '.' after 'super'.");
+			Token method = checkForToken(IDENTIFIER, "Expect superclass method name.");
+			return new Expression.SuperExpression(keyword, method);
+		}
+
 		if (matchTokenTypeWithNextToBeConsumedToken(LEFT_PAREN)) {
 			Expression expression = expression();
 			checkForToken(RIGHT_PAREN, "Expect ')' after expression.");
@@ -434,34 +511,58 @@ public class Parser {
 	}
 
 	private ParseError error (Token token, String message) {
-		Lox.error(token, message);
+		hadError = true;
+
+		if (diagnostics != null) {
+			diagnostics.add(token, message);
+		} else {
+			Lox.error(token, message);
+		}
 
-		return new ParseError();
+		return PARSE_ERROR;
+	}
+
+	private boolean diagnosticLimitReached () {
+		return diagnostics != null && diagnostics.isFull();
 	}
 
 	private void synchronize () {
 		consumeToken();
 
-		while (! isNotAtEndOfFile()) {
+		while (isNotAtEndOfFile()) {
 			if (getMostRecentlyConsumedToken().type == SEMICOLON) {
 				return;
 			}
 
-			switch (getNextToBeConsumedToken().type) {
-				case FOR:
-				case FUN:
-				case IF:
-				case VAR:
-				case CLASS:
-				case WHILE:
-				case RETURN:
-				case PRINT:
-					return;
+			if (startsDeclaration(getNextToBeConsumedToken().type)) {
+				return;
 			}
+
+			consumeToken();
 		}
 	}
 
-	private static class ParseError extends RuntimeException {
+	static boolean startsDeclaration (TokenType type) {
+		switch (type) {
+			case FOR:
+			case FUN:
+			case IF:
+			case VAR:
+			case CLASS:
+			case WHILE:
+			case RETURN:
+			case PRINT:
+			case IMPORT:
+				return true;
+			default:
+				return false;
+		}
+	}
 
+	//Thrown as a shared instance without a stack trace, so the error path allocates nothing
+	private static class ParseError extends RuntimeException {
+		ParseError () {
+			super(null, null, false, false);
+		}
 	}
 }
@@ -0,0 +1,43 @@
+package com.ajf.jlox;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Resolver output recorded for a module rather than written into an interpreter. It is cached with the module's
+//AST and applied to each interpreter that imports the module, so a module is only ever resolved once.
+final class Resolution implements ResolutionSink {
+	final Map<Expression, Integer> depths = new HashMap<>();
+	//Global names are kept by name: slot numbers differ between interpreters
+	final Map<Expression, Token> globals = new HashMap<>();
+	final Map<Statement.ClassStatement, List<String>> initializerFields = new HashMap<>();
+	final Map<Statement.ImportStatement, Path> imports = new HashMap<>();
+
+	@Override
+	public void resolve (Expression expression, int depth) {
+		depths.put(expression, depth);
+	}
+
+	@Override
+	public void resolveGlobal (Expression expression, Token variableToken) {
+		globals.put(expression, variableToken);
+	}
+
+	@Override
+	public void resolveInitializerFields (Statement.ClassStatement statement, List<String> fields) {
+		initializerFields.put(statement, fields);
+	}
+
+	@Override
+	public void resolveImport (Statement.ImportStatement statement, Path path) {
+		imports.put(statement, path);
+	}
+
+	void applyTo (ResolutionSink sink) {
+		depths.forEach(sink::resolve);
+		globals.forEach(sink::resolveGlobal);
+		initializerFields.forEach(sink::resolveInitializerFields);
+		imports.forEach(sink::resolveImport);
+	}
+}
@@ -0,0 +1,16 @@
+package com.ajf.jlox;
+
+import java.nio.file.Path;
+import java.util.List;
+
+//Receives what the Resolver works out about a program: an Interpreter, which uses it directly, or a Resolution,
+//which keeps it for a cached module and later applies it to each interpreter that imports the module
+interface ResolutionSink {
+	void resolve (Expression expression, int depth);
+
+	void resolveGlobal (Expression expression, Token variableToken);
+
+	void resolveInitializerFields (Statement.ClassStatement statement, List<String> fields);
+
+	void resolveImport (Statement.ImportStatement statement, Path path);
+}
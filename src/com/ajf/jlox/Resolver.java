@@ -1,17 +1,52 @@
 package com.ajf.jlox;
 
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Stack;
 
 public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Void> {
-	private final Interpreter interpreter;
-	private final Stack<Map<String, Boolean>> scopes = new Stack<>();
+	private final ResolutionSink sink;
+	private final Path directory;
+	//Receives errors instead of Lox.error when not null
+	private final Diagnostics diagnostics;
+	private boolean hadError = false;
 	private FunctionType currentFunction = FunctionType.NONE;
+	private ClassType currentClass = ClassType.NONE;
+	//Fields assigned through 'this' while resolving an init method, otherwise null
+	private List<String> initializerFields;
+
+	//Every local declared in the open scopes, innermost last. Each symbol links to the declaration it shadows
+	//so that innermostSymbols always maps a name straight to its closest declaration.
+	private String[] symbolNames = new String[64];
+	private int[] symbolScopes = new int[64];
+	private int[] shadowedSymbols = new int[64];
+	private boolean[] symbolsDefined = new boolean[64];
+	private int symbolCount = 0;
+
+	private int[] scopeStarts = new int[16];
+	private int scopeCount = 0;
+
+	private final SymbolIndex innermostSymbols = new SymbolIndex();
 
 	public Resolver (Interpreter interpreter) {
-		this.interpreter = interpreter;
+		this(interpreter, Paths.get(""));
+	}
+
+	//Import paths are resolved against directory, the location of the file being resolved
+	public Resolver (Interpreter interpreter, Path directory) {
+		this(interpreter, directory, null);
+	}
+
+	Resolver (ResolutionSink sink, Path directory, Diagnostics diagnostics) {
+		this.sink = sink;
+		this.directory = directory;
+		this.diagnostics = diagnostics;
+	}
+
+	boolean hadError () {
+		return hadError;
 	}
 
 	@Override
@@ -49,6 +84,51 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 	public Void visitSetExpression (Expression.SetExpression expression) {
 		resolve(expression.value);
 		resolve(expression.object);
+
+		if (initializerFields != null && expression.object instanceof Expression.ThisExpression
+				&& ! initializerFields.contains(expression.name.lexeme)) {
+			initializerFields.add(expression.name.lexeme);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitIndexExpression (Expression.IndexExpression expression) {
+		resolve(expression.object);
+		resolve(expression.index);
+		return null;
+	}
+
+	@Override
+	public Void visitIndexSetExpression (Expression.IndexSetExpression expression) {
+		resolve(expression.value);
+		resolve(expression.object);
+		resolve(expression.index);
+		return null;
+	}
+
+	@Override
+	public Void visitSuperExpression (Expression.SuperExpression expression) {
+		if (currentClass == ClassType.NONE) {
+			error(expression.keyword, "Can't use 'super' outside of a class.");
+			return null;
+		} else if (currentClass != ClassType.SUBCLASS) {
+			error(expression.keyword, "Can't use 'super' in a class with no superclass.");
+			return null;
+		}
+
+		resolveLocal(expression, expression.keyword);
+		return null;
+	}
+
+	@Override
+	public Void visitThisExpression (Expression.ThisExpression expression) {
+		if (currentClass == ClassType.NONE) {
+			error(expression.keyword, "Can't use 'this' outside of a class.");
+			return null;
+		}
+
+		resolveLocal(expression, expression.keyword);
 		return null;
 	}
 
@@ -78,8 +158,10 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 
 	@Override
 	public Void visitVariableExpression (Expression.VariableExpression expression) {
-		if (! scopes.isEmpty() && scopes.peek().get(expression.variableName.lexeme) == Boolean.FALSE) {
-			Lox.error(expression.variableName, "Can't read local variable in its own initializer.");
+		int symbol = innermostSymbols.get(expression.variableName.lexeme);
+
+		if (symbol != SymbolIndex.ABSENT && symbolScopes[symbol] == scopeCount - 1 && ! symbolsDefined[symbol]) {
+			error(expression.variableName, "Can't read local variable in its own initializer.");
 		}
 
 		resolveLocal(expression, expression.variableName);
@@ -96,13 +178,49 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 
 	@Override
 	public Void visitClassStatement (Statement.ClassStatement statement) {
+		ClassType enclosingClass = currentClass;
+		List<String> enclosingInitializerFields = initializerFields;
+		currentClass = ClassType.CLASS;
+		//'this' inside the class's own methods no longer refers to an enclosing initializer's instance
+		initializerFields = null;
+
 		declare(statement.className);
 		define(statement.className);
 
+		if (statement.superclass != null) {
+			if (statement.superclass.variableName.lexeme.equals(statement.className.lexeme)) {
+				error(statement.superclass.variableName, "A class can't inherit from itself.");
+			}
+
+			currentClass = ClassType.SUBCLASS;
+			resolve(statement.superclass);
+
+			beginScope();
+			declareSynthetic("super");
+		}
+
 		for (Statement.FunctionStatement method : statement.methods) {
 			FunctionType declaration = FunctionType.METHOD;
+
+			if (method.name.lexeme.equals("init")) {
+				declaration = FunctionType.INITIALIZER;
+				initializerFields = new ArrayList<>();
+			}
+
 			resolveFunction(method, declaration);
+
+			if (initializerFields != null) {
+				sink.resolveInitializerFields(statement, initializerFields);
+				initializerFields = null;
+			}
 		}
+
+		if (statement.superclass != null) {
+			endScope();
+		}
+
+		currentClass = enclosingClass;
+		initializerFields = enclosingInitializerFields;
 		return null;
 	}
 
@@ -140,10 +258,14 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 	@Override
 	public Void visitReturnStatement (Statement.ReturnStatement statement) {
 		if (currentFunction == FunctionType.NONE) {
-			Lox.error(statement.keyword, "Can't return from top-level code.");
+			error(statement.keyword, "Can't return from top-level code.");
 		}
 
 		if (statement.value != null) {
+			if (currentFunction == FunctionType.INITIALIZER) {
+				error(statement.keyword, "Can't return a value from an initializer.");
+			}
+
 			resolve(statement.value);
 		}
 		return null;
@@ -156,6 +278,12 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 		return null;
 	}
 
+	@Override
+	public Void visitImportStatement (Statement.ImportStatement statement) {
+		sink.resolveImport(statement, directory.resolve(statement.path).toAbsolutePath().normalize());
+		return null;
+	}
+
 	@Override
 	public Void visitVariableStatement (Statement.VariableStatement statement) {
 		declare(statement.variableName);
@@ -180,40 +308,88 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 		expression.accept(this);
 	}
 
+	private void error (Token token, String message) {
+		hadError = true;
+
+		if (diagnostics != null) {
+			diagnostics.add(token, message);
+		} else {
+			Lox.error(token, message);
+		}
+	}
+
 	private void beginScope () {
-		scopes.push(new HashMap<String, Boolean>());
+		if (scopeCount == scopeStarts.length) {
+			scopeStarts = Arrays.copyOf(scopeStarts, scopeCount * 2);
+		}
+
+		scopeStarts[scopeCount++] = symbolCount;
 	}
 
 	private void endScope () {
-		scopes.pop();
+		int scopeStart = scopeStarts[--scopeCount];
+
+		for (int symbol = symbolCount - 1; symbol >= scopeStart; symbol--) {
+			innermostSymbols.put(symbolNames[symbol], shadowedSymbols[symbol]);
+			symbolNames[symbol] = null;
+		}
+
+		symbolCount = scopeStart;
 	}
 
 	private void declare (Token name) {
-		if (scopes.isEmpty()) {
+		if (scopeCount == 0) {
+			return;
+		}
+
+		int shadowed = innermostSymbols.get(name.lexeme);
+		if (shadowed != SymbolIndex.ABSENT && symbolScopes[shadowed] == scopeCount - 1) {
+			error(name, "Variable with this name already exists in this scope");
+			symbolsDefined[shadowed] = false;
 			return;
 		}
 
-		Map<String, Boolean> scope = scopes.peek();
-		if (scope.containsKey(name.lexeme)) {
-			Lox.error(name, "Variable with this name already exists in this scope");
+		addSymbol(name.lexeme, shadowed);
+	}
+
+	//Declares and defines an implicit name such as 'this' or 'super' in the innermost scope
+	private void declareSynthetic (String name) {
+		addSymbol(name, innermostSymbols.get(name));
+		symbolsDefined[symbolCount - 1] = true;
+	}
+
+	private void addSymbol (String name, int shadowed) {
+		if (symbolCount == symbolNames.length) {
+			int capacity = symbolCount * 2;
+			symbolNames = Arrays.copyOf(symbolNames, capacity);
+			symbolScopes = Arrays.copyOf(symbolScopes, capacity);
+			shadowedSymbols = Arrays.copyOf(shadowedSymbols, capacity);
+			symbolsDefined = Arrays.copyOf(symbolsDefined, capacity);
 		}
-		scope.put(name.lexeme, false);
+
+		int symbol = symbolCount++;
+		symbolNames[symbol] = name;
+		symbolScopes[symbol] = scopeCount - 1;
+		shadowedSymbols[symbol] = shadowed;
+		symbolsDefined[symbol] = false;
+		innermostSymbols.put(name, symbol);
 	}
 
 	private void define (Token name) {
-		if (scopes.isEmpty()) {
+		if (scopeCount == 0) {
 			return;
 		}
 
-		scopes.peek().put(name.lexeme, true);
+		symbolsDefined[innermostSymbols.get(name.lexeme)] = true;
 	}
 
 	private void resolveLocal (Expression expression, Token variableToResolve) {
-		for (int i = scopes.size() - 1; i >= 0; i--) {
-			if (scopes.get(i).containsKey(variableToResolve.lexeme)) {
-				interpreter.resolve(expression, scopes.size() - 1 - i);
-				return;
-			}
+		int symbol = innermostSymbols.get(variableToResolve.lexeme);
+
+		if (symbol != SymbolIndex.ABSENT) {
+			sink.resolve(expression, scopeCount - 1 - symbolScopes[symbol]);
+		} else {
+			sink.resolveGlobal(expression, variableToResolve);
 		}
 	}
 
@@ -222,6 +398,11 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 		currentFunction = functionType;
 
 		beginScope();
+		//Methods receive their receiver as the first variable of the call environment
+		if (functionType == FunctionType.METHOD || functionType == FunctionType.INITIALIZER) {
+			declareSynthetic("this");
+		}
+
 		for (Token param : function.params) {
 			declare(param);
 			define(param);
@@ -231,4 +412,63 @@ public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Voi
 		endScope();
 		currentFunction = enclosingFunction;
 	}
+
+	//Open addressing map from name to symbol index. Names are never removed, only reset to ABSENT,
+	//so entering and leaving scopes does not allocate.
+	private static class SymbolIndex {
+		static final int ABSENT = - 1;
+
+		private String[] names = new String[64];
+		private int[] symbols = new int[64];
+		private int size = 0;
+
+		int get (String name) {
+			int mask = names.length - 1;
+
+			for (int slot = name.hashCode() & mask; names[slot] != null; slot = (slot + 1) & mask) {
+				if (names[slot].equals(name)) {
+					return symbols[slot];
+				}
+			}
+
+			return ABSENT;
+		}
+
+		void put (String name, int symbol) {
+			int mask = names.length - 1;
+			int slot = name.hashCode() & mask;
+
+			while (names[slot] != null) {
+				if (names[slot].equals(name)) {
+					symbols[slot] = symbol;
+					return;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			names[slot] = name;
+			symbols[slot] = symbol;
+			size++;
+
+			if (size * 2 > names.length) {
+				grow();
+			}
+		}
+
+		private void grow () {
+			String[] oldNames = names;
+			int[] oldSymbols = symbols;
+
+			names = new String[oldNames.length * 2];
+			symbols = new int[oldNames.length * 2];
+			size = 0;
+
+			for (int i = 0; i < oldNames.length; i++) {
+				if (oldNames[i] != null) {
+					put(oldNames[i], oldSymbols[i]);
+				}
+			}
+		}
+	}
 }
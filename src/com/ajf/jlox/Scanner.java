@@ -13,31 +13,20 @@ public class Scanner {
 	private int startOfTokenIndex = 0;
 	private int cursorIndex = 0;
 	private int line = 1;
+	//Receives errors instead of Lox.error when not null
+	private final Diagnostics diagnostics;
+	//One String per distinct lexeme, so the tokens a parsed program keeps share their names instead of each
+	//holding its own copy. Only turned off to measure the difference (AstHeapBenchmark).
+	boolean internLexemes = true;
+	private final Map<String, String> lexemes = new HashMap<>();
 
-	private static final Map<String, TokenType> keywords;
-
-	static {
-		keywords = new HashMap<>();
-		keywords.put("and", AND);
-		keywords.put("class", CLASS);
-		keywords.put("else", ELSE);
-		keywords.put("false", FALSE);
-		keywords.put("for", FOR);
-		keywords.put("fun", FUN);
-		keywords.put("if", IF);
-		keywords.put("nil", NIL);
-		keywords.put("or", OR);
-		keywords.put("print", PRINT);
-		keywords.put("return", RETURN);
-		keywords.put("super", SUPER);
-		keywords.put("this", THIS);
-		keywords.put("true", TRUE);
-		keywords.put("var", VAR);
-		keywords.put("while", WHILE);
+	public Scanner (String source) {
+		this(source, null);
 	}
 
-	public Scanner (String source) {
+	Scanner (String source, Diagnostics diagnostics) {
 		this.source = source;
+		this.diagnostics = diagnostics;
 	}
 
 	List<Token> scanTokens () {
@@ -73,6 +62,12 @@ public class Scanner {
 			case '}':
 				addToken(RIGHT_BRACE);
 				break;
+			case '[':
+				addToken(LEFT_BRACKET);
+				break;
+			case ']':
+				addToken(RIGHT_BRACKET);
+				break;
 			case ',':
 				addToken(COMMA);
 				break;
@@ -131,13 +126,20 @@ public class Scanner {
 				} else if (charIsLetterOrUnderscore(currentChar)) {
 					addIdentifierToken();
 				} else {
-					Lox.error(line,
-							  "Unexpected character: " + currentChar + " | Start of broken token: " + startOfTokenIndex + " | Cursor Index " + cursorIndex);
+					error("Unexpected character: " + currentChar + " | Start of broken token: " + startOfTokenIndex + " | Cursor Index " + cursorIndex);
 				}
 				break;
 		}
 	}
 
+	private void error (String message) {
+		if (diagnostics != null) {
+			diagnostics.add(line, message);
+		} else {
+			Lox.error(line, message);
+		}
+	}
+
 	private char getCurrentChar () {
 		char currentChar = source.charAt(cursorIndex);
 
@@ -154,6 +156,14 @@ public class Scanner {
 
 	private void addToken (TokenType tokenType, Object literal) {
 		String lexeme = source.substring(startOfTokenIndex, cursorIndex);
+
+		if (internLexemes) {
+			String shared = lexemes.putIfAbsent(lexeme, lexeme);
+			if (shared != null) {
+				lexeme = shared;
+			}
+		}
+
 		tokens.add(new Token(tokenType, lexeme, literal, line));
 	}
 
@@ -188,7 +198,7 @@ public class Scanner {
 		}
 
 		if (isAtEnd()) {
-			Lox.error(line, "Unterminated String");
+			error("Unterminated String");
 			return null;
 		}
 
@@ -234,12 +244,49 @@ public class Scanner {
 			incrementCursorIndex();
 		}
 
-		String tokenText = source.substring(startOfTokenIndex, cursorIndex);
-		TokenType tokenType = keywords.get(tokenText);
-		if (tokenType == null) {
-			tokenType = IDENTIFIER;
+		addToken(keywordType(source.substring(startOfTokenIndex, cursorIndex)));
+	}
+
+	//A string switch compiles to a hashCode lookupswitch, so keywords need no map built at class initialization
+	private static TokenType keywordType (String text) {
+		switch (text) {
+			case "and":
+				return AND;
+			case "class":
+				return CLASS;
+			case "else":
+				return ELSE;
+			case "false":
+				return FALSE;
+			case "for":
+				return FOR;
+			case "fun":
+				return FUN;
+			case "if":
+				return IF;
+			case "import":
+				return IMPORT;
+			case "nil":
+				return NIL;
+			case "or":
+				return OR;
+			case "print":
+				return PRINT;
+			case "return":
+				return RETURN;
+			case "super":
+				return SUPER;
+			case "this":
+				return THIS;
+			case "true":
+				return TRUE;
+			case "var":
+				return VAR;
+			case "while":
+				return WHILE;
+			default:
+				return IDENTIFIER;
 		}
-		addToken(tokenType);
 	}
 
 	private boolean isAlphaNumeric (char character) {
@@ -0,0 +1,161 @@
+package com.ajf.jlox;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+//Natives defined in every interpreter. Each public static method becomes a global of the same name; see
+//NativeFunction for the supported parameter and return types.
+final class StandardLibrary {
+	private StandardLibrary () {
+	}
+
+	//Core
+
+	public static double clock () {
+		return (double) System.currentTimeMillis() / 1000.0;
+	}
+
+	public static Object List (Interpreter interpreter) {
+		interpreter.memory.charge(MemoryBudget.COLLECTION_BYTES);
+		return new LoxList();
+	}
+
+	public static Object Map (Interpreter interpreter) {
+		interpreter.memory.charge(MemoryBudget.COLLECTION_BYTES);
+		return new LoxMap();
+	}
+
+	public static Object memoize (Interpreter interpreter, Object function) {
+		if (! (function instanceof LoxCallable)) {
+			throw new RuntimeError(interpreter.callSite, "memoize() expects a function.");
+		}
+
+		interpreter.memory.charge(MemoryBudget.COLLECTION_BYTES);
+		return new MemoizedFunction((LoxCallable) function, MemoizedFunction.DEFAULT_CAPACITY);
+	}
+
+	public static Object memoStats (Interpreter interpreter, Object function) {
+		if (! (function instanceof MemoizedFunction)) {
+			throw new RuntimeError(interpreter.callSite, "memoStats() expects a memoized function.");
+		}
+
+		return ((MemoizedFunction) function).stats();
+	}
+
+	//Math
+
+	public static double sqrt (double value) {
+		return Math.sqrt(value);
+	}
+
+	public static double abs (double value) {
+		return Math.abs(value);
+	}
+
+	public static double floor (double value) {
+		return Math.floor(value);
+	}
+
+	public static double ceil (double value) {
+		return Math.ceil(value);
+	}
+
+	public static double round (double value) {
+		return Math.round(value);
+	}
+
+	public static double pow (double base, double exponent) {
+		return Math.pow(base, exponent);
+	}
+
+	public static double min (double first, double second) {
+		return Math.min(first, second);
+	}
+
+	public static double max (double first, double second) {
+		return Math.max(first, second);
+	}
+
+	public static double sin (double value) {
+		return Math.sin(value);
+	}
+
+	public static double cos (double value) {
+		return Math.cos(value);
+	}
+
+	public static double atan2 (double y, double x) {
+		return Math.atan2(y, x);
+	}
+
+	public static double log (double value) {
+		return Math.log(value);
+	}
+
+	public static double exp (double value) {
+		return Math.exp(value);
+	}
+
+	public static double random () {
+		return Math.random();
+	}
+
+	//Strings
+
+	public static int len (String text) {
+		return text.length();
+	}
+
+	public static String substring (String text, int start, int end) {
+		return text.substring(start, end);
+	}
+
+	public static int indexOf (String text, String part) {
+		return text.indexOf(part);
+	}
+
+	public static String upper (String text) {
+		return text.toUpperCase();
+	}
+
+	public static String lower (String text) {
+		return text.toLowerCase();
+	}
+
+	public static String trim (String text) {
+		return text.strip();
+	}
+
+	public static String charAt (String text, int index) {
+		return String.valueOf(text.charAt(index));
+	}
+
+	public static double num (String text) {
+		return Double.parseDouble(text);
+	}
+
+	//Hashing
+
+	public static int hash (String text) {
+		return text.hashCode();
+	}
+
+	public static long crc32 (String text) {
+		CRC32 crc = new CRC32();
+		crc.update(text.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	public static String sha256 (String text) throws NoSuchAlgorithmException {
+		byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+		StringBuilder hex = new StringBuilder(digest.length * 2);
+
+		for (byte value : digest) {
+			hex.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+		}
+
+		return hex.toString();
+	}
+}
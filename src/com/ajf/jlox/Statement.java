@@ -12,6 +12,7 @@ interface Visitor<R> {
  R visitPrintStatement(PrintStatement statement);
  R visitReturnStatement(ReturnStatement statement);
  R visitWhileStatement(WhileStatement statement);
+ R visitImportStatement(ImportStatement statement);
  R visitVariableStatement(VariableStatement statement);
 }
 static class BlockStatement extends Statement{
@@ -26,9 +27,11 @@ return visitor.visitBlockStatement(this);
 }
 static class ClassStatement extends Statement{
 final  Token className;
+final  Expression.VariableExpression superclass;
 final  List<Statement.FunctionStatement> methods;
-ClassStatement( Token className, List<Statement.FunctionStatement> methods) {
+ClassStatement( Token className, Expression.VariableExpression superclass, List<Statement.FunctionStatement> methods) {
 this.className = className;
+this.superclass = superclass;
 this.methods = methods;
 }
 @Override
@@ -97,9 +100,11 @@ return visitor.visitReturnStatement(this);
 }
 }
 static class WhileStatement extends Statement{
+final  Token keyword;
 final  Expression condition;
 final  Statement body;
-WhileStatement( Expression condition, Statement body) {
+WhileStatement( Token keyword, Expression condition, Statement body) {
+this.keyword = keyword;
 this.condition = condition;
 this.body = body;
 }
@@ -108,6 +113,18 @@ this.body = body;
 return visitor.visitWhileStatement(this);
 }
 }
+static class ImportStatement extends Statement{
+final  Token keyword;
+final  String path;
+ImportStatement( Token keyword, String path) {
+this.keyword = keyword;
+this.path = path;
+}
+@Override
+<R>R accept(Visitor<R> visitor){
+return visitor.visitImportStatement(this);
+}
+}
 static class VariableStatement extends Statement{
 final  Token variableName;
 final  Expression initializer;
@@ -0,0 +1,44 @@
+package com.ajf.jlox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+//Output sink over a Writer, normally a large BufferedWriter. Writer methods lock internally, which makes
+//flushing from another thread safe.
+public class WriterOutputSink implements OutputSink {
+	private final Writer writer;
+	private final String lineSeparator = System.lineSeparator();
+
+	public WriterOutputSink (Writer writer) {
+		this.writer = writer;
+	}
+
+	@Override
+	public void printLine (CharSequence text) {
+		try {
+			writer.append(text).write(lineSeparator);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	@Override
+	public void printLine (char[] characters, int offset, int length) {
+		try {
+			writer.write(characters, offset, length);
+			writer.write(lineSeparator);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	@Override
+	public void flush () {
+		try {
+			writer.flush();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+}
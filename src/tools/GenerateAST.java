@@ -21,6 +21,10 @@ public class GenerateAST {
 				"CallExpression : Expression callee, Token paren, List<Expression> arguments",
 				"GetExpression : Expression object, Token className",
 				"SetExpression : Expression object, Token name, Expression value",
+				"IndexExpression : Expression object, Token bracket, Expression index",
+				"IndexSetExpression : Expression object, Token bracket, Expression index, Expression value",
+				"SuperExpression : Token keyword, Token method",
+				"ThisExpression : Token keyword",
 				"GroupingExpression : Expression expression",
 				"LiteralExpression : Object value",
 				"LogicalExpression : Expression left, Token operator, Expression right",
@@ -31,13 +35,14 @@ public class GenerateAST {
 		//Statements
 		defineAST(outputDir, "Statement", Arrays.asList(
 				"BlockStatement: List<Statement> statements",
-				"ClassStatement : Token className, List<Statement.FunctionStatement> methods",
+				"ClassStatement : Token className, Expression.VariableExpression superclass, List<Statement.FunctionStatement> methods",
 				"ExpressionStatement : Expression expression",
 				"FunctionStatement : Token name, List<Token> params,List<Statement> body",
 				"IfStatement : Expression condition, Statement thenBranch, Statement elseBranch",
 				"PrintStatement : Expression expression",
 				"ReturnStatement: Token keyword, Expression value",
-				"WhileStatement : Expression condition, Statement body",
+				"WhileStatement : Token keyword, Expression condition, Statement body",
+				"ImportStatement : Token keyword, String path",
 				"VariableStatement : Token variableName, Expression initializer"
 		));
 	}
@@ -0,0 +1,48 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class ChannelOutputSinkTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void writesLikeTheStdoutSink () throws IOException {
+		assertSameOutput("plain text", "ümlaut and € sign");
+	}
+
+	@Test
+	void replacesLoneSurrogatesInsteadOfFailing () throws IOException {
+		assertSameOutput("before \uD800 after", "trailing \uDC00");
+	}
+
+	private void assertSameOutput (String... lines) throws IOException {
+		Path file = directory.resolve("output.txt");
+		ChannelOutputSink channelSink = ChannelOutputSink.open(file);
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		WriterOutputSink writerSink = new WriterOutputSink(new OutputStreamWriter(expected, Charset.defaultCharset()));
+
+		for (String line : lines) {
+			channelSink.printLine(line);
+			writerSink.printLine(line);
+			char[] characters = line.toCharArray();
+			channelSink.printLine(characters, 0, characters.length);
+			writerSink.printLine(characters, 0, characters.length);
+		}
+
+		channelSink.flush();
+		writerSink.flush();
+		assertArrayEquals(expected.toByteArray(), Files.readAllBytes(file));
+	}
+}
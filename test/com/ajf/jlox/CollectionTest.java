@@ -0,0 +1,33 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CollectionTest {
+	@Test
+	void indexAssignmentChecksBoundsAfterEvaluatingTheValue () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"var xs = List(); xs.add(1); xs.add(2); xs[1] = xs.pop(); print xs;");
+
+		assertEquals("", result.output);
+		assertEquals(70, result.exitCode);
+		assertEquals("List index 1 out of range for length 1.", result.firstErrorLine());
+	}
+
+	@Test
+	void indexAssignmentWithinBounds () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"var xs = List(); xs.add(1); xs.add(2); xs.add(3); xs[0] = xs.pop(); print xs;");
+
+		assertEquals(LoxTestScripts.lines("[3, 2]"), result.output);
+	}
+
+	@Test
+	void selfContainingCollectionsPrint () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"var xs = List(); xs.add(xs); print xs; var m = Map(); m[\"self\"] = m; print m;");
+
+		assertEquals(LoxTestScripts.lines("[[...]]", "{self: {...}}"), result.output);
+	}
+}
@@ -0,0 +1,44 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcatStringTest {
+	@Test
+	void accumulatingChargesLinearMemory () {
+		MemoryBudget memory = new MemoryBudget();
+		Object text = "";
+
+		for (int i = 0; i < 10_000; i++) {
+			text = ConcatString.concat(text, "x", memory);
+		}
+
+		assertEquals(10_000, ((CharSequence) text).length());
+		assertTrue(memory.getUsedBytes() < 10_000 * MemoryBudget.STRING_BYTES + 4 * 10_000, "" + memory.getUsedBytes());
+	}
+
+	@Test
+	void appendingToAnOlderPrefixChargesTheCopy () {
+		MemoryBudget memory = new MemoryBudget();
+		Object base = ConcatString.concat("a".repeat(1000), "b", memory);
+		ConcatString.concat(base, "c", memory);
+
+		long before = memory.getUsedBytes();
+		for (int i = 0; i < 100; i++) {
+			Object copy = ConcatString.concat(base, "d", memory);
+			assertEquals("a".repeat(1000) + "bd", copy.toString());
+		}
+
+		assertTrue(memory.getUsedBytes() - before >= 100 * 1002, "" + (memory.getUsedBytes() - before));
+	}
+
+	@Test
+	void comparesByContentOnceFlattened () {
+		Object built = ConcatString.concat("a".repeat(100), "b", new MemoryBudget());
+
+		assertEquals("a".repeat(100) + "b", ConcatString.flatten(built));
+		assertEquals(ConcatString.flatten(built).hashCode(), built.hashCode());
+	}
+}
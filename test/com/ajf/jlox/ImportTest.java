@@ -0,0 +1,103 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImportTest {
+	@TempDir
+	Path directory;
+
+	private final StringWriter output = new StringWriter();
+	private final Interpreter interpreter = new Interpreter(new WriterOutputSink(output));
+
+	@BeforeEach
+	@AfterEach
+	void clearCache () {
+		ModuleCache.clear();
+	}
+
+	@Test
+	void importsEachModuleOnce () throws IOException {
+		write("library.lox", "print \"loading\"; var answer = 42;");
+		Path main = write("main.lox", "import \"library.lox\"; import \"library.lox\"; print answer;");
+
+		assertEquals(0, Lox.runScript(main, interpreter));
+		assertEquals(LoxTestScripts.lines("loading", "42"), output.toString());
+	}
+
+	@Test
+	void cyclicImportsRunEachModuleOnce () throws IOException {
+		write("a.lox", "print \"a\"; import \"b.lox\"; print \"a done\";");
+		write("b.lox", "print \"b\"; import \"a.lox\"; print \"b done\";");
+		Path main = write("main.lox", "import \"a.lox\"; import \"b.lox\";");
+
+		assertEquals(0, Lox.runScript(main, interpreter));
+		assertEquals(LoxTestScripts.lines("a", "b", "b done", "a done"), output.toString());
+		assertTrue(interpreter.loadedModules().contains(directory.resolve("a.lox")));
+		assertTrue(interpreter.loadedModules().contains(directory.resolve("b.lox")));
+	}
+
+	@Test
+	void reusesCachedModuleUntilItChanges () throws IOException {
+		Path library = write("library.lox", "var version = 1;");
+		FileTime modified = Files.getLastModifiedTime(library);
+		Token importToken = new Token(TokenType.IMPORT, "import", null, 1);
+
+		ModuleCache.Module first = ModuleCache.load(library, importToken);
+		assertSame(first, ModuleCache.load(library, importToken));
+
+		write("library.lox", "var version = 2;");
+		Files.setLastModifiedTime(library, FileTime.fromMillis(modified.toMillis() + 1000));
+		ModuleCache.Module second = ModuleCache.load(library, importToken);
+		assertNotSame(first, second);
+
+		Path main = write("main.lox", "import \"library.lox\"; print version;");
+		assertEquals(0, Lox.runScript(main, interpreter));
+		assertEquals(LoxTestScripts.lines("2"), output.toString());
+	}
+
+	@Test
+	void scanErrorInModuleIsRuntimeErrorOfImport () throws IOException {
+		write("library.lox", "var broken = \"unterminated;");
+		Path main = write("main.lox", "import \"library.lox\";");
+
+		assertEquals(70, Lox.runScript(main, interpreter));
+		assertFalse(Lox.hadError);
+	}
+
+	@Test
+	void failedModuleIsNotMarkedLoaded () throws IOException {
+		Path library = write("library.lox", "var value = nil; value = 1 + nil;");
+		Path main = write("main.lox", "import \"library.lox\"; print value;");
+
+		assertEquals(70, Lox.runScript(main, interpreter));
+		assertFalse(interpreter.loadedModules().contains(library));
+
+		FileTime modified = Files.getLastModifiedTime(library);
+		write("library.lox", "var value = 1;");
+		Files.setLastModifiedTime(library, FileTime.fromMillis(modified.toMillis() + 1000));
+
+		assertEquals(0, Lox.runScript(main, interpreter));
+		assertEquals(LoxTestScripts.lines("1"), output.toString());
+		assertTrue(interpreter.loadedModules().contains(library));
+	}
+
+	private Path write (String name, String source) throws IOException {
+		return Files.write(directory.resolve(name), source.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,86 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InheritanceTest {
+	@Test
+	void subclassInheritsAndOverridesMethods () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class A { name() { return \"A\"; } greet() { return \"hello from \" + this.name(); } }\n"
+				+ "class B < A { name() { return \"B\"; } }\n"
+				+ "class C < B {}\n"
+				+ "print A().greet(); print B().greet(); print C().greet();");
+
+		assertEquals(LoxTestScripts.lines("hello from A", "hello from B", "hello from B"), result.output);
+	}
+
+	@Test
+	void superCallsTheSuperclassMethodWithTheSameReceiver () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class A { describe() { return \"A(\" + this.tag + \")\"; } }\n"
+				+ "class B < A { describe() { return \"B > \" + super.describe(); } }\n"
+				+ "class C < B { init() { this.tag = \"c\"; } describe() { return \"C > \" + super.describe(); } }\n"
+				+ "print C().describe();");
+
+		assertEquals(LoxTestScripts.lines("C > B > A(c)"), result.output);
+	}
+
+	@Test
+	void superMethodBindsItsReceiver () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class A { value() { return this.v; } }\n"
+				+ "class B < A { init() { this.v = 7; } getter() { return super.value; } }\n"
+				+ "var getter = B().getter(); print getter();");
+
+		assertEquals(LoxTestScripts.lines("7"), result.output);
+	}
+
+	@Test
+	void subclassInheritsTheInitializer () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class A { init(x) { this.x = x; } }\n"
+				+ "class B < A {}\n"
+				+ "print B(3).x;");
+
+		assertEquals(LoxTestScripts.lines("3"), result.output);
+	}
+
+	@Test
+	void missingSuperMethodIsARuntimeError () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class A {} class B < A { m() { return super.missing(); } } B().m();");
+
+		assertEquals(70, result.exitCode);
+		assertEquals("Undefined property 'missing'.", result.firstErrorLine());
+	}
+
+	@Test
+	void superclassMustBeAClass () {
+		LoxTestScripts.Result result = LoxTestScripts.run("var x = 1; class A < x {}");
+
+		assertEquals(70, result.exitCode);
+		assertEquals("Superclass must be a class.", result.firstErrorLine());
+	}
+
+	@Test
+	void classCannotInheritFromItself () {
+		assertStaticError("class A < A {}", "A class can't inherit from itself.");
+	}
+
+	@Test
+	void superOutsideASubclass () {
+		assertStaticError("class A { m() { return super.m(); } }", "Can't use 'super' in a class with no superclass.");
+		assertStaticError("print super.m();", "Can't use 'super' outside of a class.");
+	}
+
+	private static void assertStaticError (String source, String message) {
+		LoxTestScripts.Result result = LoxTestScripts.run(source);
+
+		assertEquals("", result.output);
+		assertEquals(65, result.exitCode);
+		assertTrue(result.errors.contains(message), result.errors);
+	}
+}
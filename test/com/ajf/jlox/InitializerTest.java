@@ -0,0 +1,60 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InitializerTest {
+	@Test
+	void initReturnsItsReceiver () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class A { init(n) { this.n = n; } }\n"
+				+ "var a = A(1); var b = a.init(5);\n"
+				+ "print b == a; print a.n;\n"
+				+ "class B { init() { this.x = 1; return; this.x = 2; } }\n"
+				+ "print B().x; var init = B().init; print init().x;");
+
+		assertEquals(LoxTestScripts.lines("true", "5", "1", "1"), result.output);
+	}
+
+	@Test
+	void initCannotReturnAValue () {
+		LoxTestScripts.Result result = LoxTestScripts.run("class A { init() { return 1; } }");
+
+		assertEquals(65, result.exitCode);
+		assertTrue(result.errors.contains("Can't return a value from an initializer."), result.errors);
+	}
+
+	@Test
+	void classDeclaredInsideMethods () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class Outer {\n"
+				+ "  init() { class Inner { init() { this.y = 2; } } this.x = 1; this.inner = Inner(); }\n"
+				+ "  make() { class Made { init() { this.z = 3; } } return Made(); }\n"
+				+ "}\n"
+				+ "var o = Outer(); print o.x; print o.inner.y; print o.make().z;");
+
+		assertEquals(LoxTestScripts.lines("1", "2", "3"), result.output);
+	}
+
+	@Test
+	void nestedClassDoesNotResetTheEnclosingInitializerFields () {
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		int exitCode = Lox.runSource(
+				"class Outer {\n"
+				+ "  init() { this.before = 0; class Inner { init() { this.y = 2; } m() { this.later = 1; } }\n"
+				+ "    this.after = 1; this.inner = Inner(); }\n"
+				+ "}\n", interpreter, Paths.get(""));
+
+		assertEquals(0, exitCode);
+		assertEquals(List.of("before", "after", "inner"), classNamed(interpreter, "Outer").initializerFields);
+	}
+
+	private static LoxClass classNamed (Interpreter interpreter, String name) {
+		return (LoxClass) interpreter.globals.getVariable(new Token(TokenType.IDENTIFIER, name, null, 1));
+	}
+}
@@ -0,0 +1,123 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InterpreterSnapshotTest {
+	@TempDir
+	Path directory;
+
+	@Test
+	void nestedFunctionAlsoReachableAsValue () throws IOException {
+		String output = roundTrip(
+				"fun outer() { fun inner(x) { return x + 1; } return inner; } var f = outer();",
+				"print outer()(1); print f(2);");
+
+		assertEquals(LoxTestScripts.lines("2", "3"), output);
+	}
+
+	@Test
+	void closuresKeepTheirState () throws IOException {
+		String output = roundTrip(
+				"fun counter() { var count = 0; fun next() { count = count + 1; return count; } return next; }"
+						+ " var a = counter(); var b = counter(); a(); a(); b();",
+				"print a(); print b(); var c = counter(); print c();");
+
+		assertEquals(LoxTestScripts.lines("3", "2", "1"), output);
+	}
+
+	@Test
+	void closuresSharingADeclarationShareTheirEnvironment () throws IOException {
+		String output = roundTrip(
+				"var get; var set; fun pair() { var value = \"start\"; fun g() { return value; } fun s(v) { value = v; }"
+						+ " get = g; set = s; } pair();",
+				"set(\"changed\"); print get();");
+
+		assertEquals(LoxTestScripts.lines("changed"), output);
+	}
+
+	@Test
+	void classesInstancesAndCollections () throws IOException {
+		String output = roundTrip(
+				"class Point { init (x, y) { this.x = x; this.y = y; } sum () { return this.x + this.y; } }"
+						+ " class Point3 < Point { init (x, y, z) { super.init(x, y); this.z = z; }"
+						+ " sum () { return super.sum() + this.z; } }"
+						+ " var p = Point3(1, 2, 3); var items = List(); items.add(p); items.add(items);"
+						+ " var names = Map(); names[\"p\"] = p;",
+				"print p.sum(); print items.length(); print names[\"p\"].z; print items;");
+
+		assertEquals(LoxTestScripts.lines("6", "2", "3", "[Point3 instance, [...]]"), output);
+	}
+
+	@Test
+	void truncatedImageIsReportedAsCorrupt () throws IOException {
+		Path image = snapshot("fun f(x) { return x * 2; } var values = List(); values.add(f);");
+		byte[] bytes = Files.readAllBytes(image);
+		Files.write(image, Arrays.copyOf(bytes, bytes.length / 2));
+
+		IOException exception = assertThrows(IOException.class, () -> new Interpreter().restore(image));
+		assertTrue(exception.getMessage().startsWith("Corrupt snapshot"), exception.getMessage());
+	}
+
+	@Test
+	void negativeLengthIsReportedAsCorrupt () throws IOException {
+		Path image = snapshot("var x = 1;");
+		byte[] bytes = Files.readAllBytes(image);
+		//The program's code length follows the four header ints
+		ByteBuffer.wrap(bytes).putInt(4 * Integer.BYTES, - 5);
+		Files.write(image, bytes);
+
+		IOException exception = assertThrows(IOException.class, () -> new Interpreter().restore(image));
+		assertTrue(exception.getMessage().startsWith("Corrupt snapshot"), exception.getMessage());
+	}
+
+	@Test
+	void otherVersionIsRejected () throws IOException {
+		Path image = snapshot("var x = 1;");
+		byte[] bytes = Files.readAllBytes(image);
+		ByteBuffer.wrap(bytes).putInt(Integer.BYTES, 1);
+		Files.write(image, bytes);
+
+		IOException exception = assertThrows(IOException.class, () -> new Interpreter().restore(image));
+		assertTrue(exception.getMessage().contains("another version"), exception.getMessage());
+	}
+
+	private String roundTrip (String prelude, String main) throws IOException {
+		Path image = snapshot(prelude);
+
+		StringWriter output = new StringWriter();
+		Interpreter interpreter = new Interpreter(new WriterOutputSink(output));
+		interpreter.restore(image);
+		run(interpreter, main);
+		return output.toString();
+	}
+
+	private Path snapshot (String prelude) throws IOException {
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		run(interpreter, prelude);
+
+		Path image = directory.resolve("prelude.img");
+		interpreter.snapshot(image);
+		return image;
+	}
+
+	private static void run (Interpreter interpreter, String source) {
+		List<Statement> statements = new Parser(new Scanner(source).scanTokens()).parse();
+		new Resolver(interpreter).resolve(statements);
+		Lox.hadRuntimeError = false;
+		interpreter.interpret(statements);
+		assertEquals(false, Lox.hadRuntimeError, "Runtime error in: " + source);
+	}
+}
@@ -0,0 +1,164 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoxServerTest {
+	private static final long TIMEOUT_MILLIS = 500;
+
+	@TempDir
+	Path directory;
+
+	private ServerSocketChannel server;
+	private Thread serverThread;
+
+	@BeforeEach
+	void startServer () throws IOException {
+		server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		server.bind(UnixDomainSocketAddress.of(directory.resolve("jlox.sock")));
+		serverThread = new Thread(() -> LoxServer.serveUntilClosed(server, TIMEOUT_MILLIS), "jlox-server");
+		serverThread.start();
+	}
+
+	@AfterEach
+	void stopServer () throws IOException, InterruptedException {
+		server.close();
+		serverThread.join(10_000);
+	}
+
+	@Test
+	void successfulScriptExitsWithZero () throws IOException {
+		Response response = run("ok.lox", "print 1 + 2;");
+
+		assertEquals(0, response.exitCode);
+		assertEquals("3" + System.lineSeparator(), response.stdout);
+	}
+
+	@Test
+	void staticErrorExitsWith65 () throws IOException {
+		Response response = run("static.lox", "print ;");
+
+		assertEquals(65, response.exitCode);
+		assertTrue(response.stderr.contains("Expect expression"), response.stderr);
+	}
+
+	@Test
+	void runtimeErrorExitsWith70 () throws IOException {
+		Response response = run("runtime.lox", "print nil + 1;");
+
+		assertEquals(70, response.exitCode);
+		assertTrue(response.stderr.contains("[line 1]"), response.stderr);
+	}
+
+	@Test
+	void unreadableScriptExitsWith66 () throws IOException {
+		Response response = request(directory.resolve("missing.lox"));
+
+		assertEquals(LoxServer.UNREADABLE_SCRIPT, response.exitCode);
+		assertTrue(response.stderr.startsWith("Could not read script"), response.stderr);
+	}
+
+	@Test
+	void keepsServingAfterStackOverflow () throws IOException {
+		Response overflow = run("overflow.lox", "fun f(n) { return f(n + 1); } f(0);");
+
+		assertEquals(LoxServer.RUNTIME_ERROR, overflow.exitCode);
+		assertTrue(overflow.stderr.contains("Stack overflow."), overflow.stderr);
+
+		Response next = run("next.lox", "print \"still here\";");
+		assertEquals(0, next.exitCode);
+		assertEquals("still here" + System.lineSeparator(), next.stdout);
+	}
+
+	@Test
+	void endlessScriptHitsTimeLimitAndServerContinues () throws IOException {
+		Response endless = run("endless.lox", "while (true) {}");
+
+		assertEquals(LoxServer.RUNTIME_ERROR, endless.exitCode);
+		assertTrue(endless.stderr.contains("Time limit of " + TIMEOUT_MILLIS + " ms exceeded."), endless.stderr);
+
+		Response next = run("next.lox", "print 1;");
+		assertEquals(0, next.exitCode);
+	}
+
+	@Test
+	void clientLeavingMidRunDoesNotCaptureStandardError () throws IOException, InterruptedException {
+		PrintStream standardError = System.err;
+		Path script = Files.write(directory.resolve("chatty.lox"),
+								  "var i = 0; while (i < 200000) { print i; i = i + 1; }".getBytes(StandardCharsets.UTF_8));
+
+		try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+			DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+			request.writeUTF(script.toString());
+			request.flush();
+		}
+
+		//The next request is only served once the abandoned one has finished
+		assertEquals(0, run("after.lox", "print 2;").exitCode);
+		assertSame(standardError, System.err);
+	}
+
+	private Response run (String name, String source) throws IOException {
+		return request(Files.write(directory.resolve(name), source.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	//Speaks the same protocol as LoxClient
+	private Response request (Path script) throws IOException {
+		try (SocketChannel channel = SocketChannel.open(server.getLocalAddress())) {
+			DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+			request.writeUTF(script.toAbsolutePath().toString());
+			request.flush();
+
+			DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+			ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+			ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+
+			while (true) {
+				byte tag = response.readByte();
+
+				if (tag == LoxServer.EXIT) {
+					Charset charset = Charset.defaultCharset();
+					return new Response(stdout.toString(charset), stderr.toString(charset), response.readInt());
+				}
+
+				byte[] bytes = new byte[response.readInt()];
+				response.readFully(bytes);
+				(tag == LoxServer.STDOUT ? stdout : stderr).write(bytes);
+			}
+		}
+	}
+
+	private static final class Response {
+		final String stdout;
+		final String stderr;
+		final int exitCode;
+
+		Response (String stdout, String stderr, int exitCode) {
+			this.stdout = stdout;
+			this.stderr = stderr;
+			this.exitCode = exitCode;
+		}
+	}
+}
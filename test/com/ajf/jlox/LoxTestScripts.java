@@ -0,0 +1,56 @@
+package com.ajf.jlox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+//Runs a Lox script the way 'jlox script' does and captures what it prints, its error output and its exit code
+final class LoxTestScripts {
+	private LoxTestScripts () {
+	}
+
+	static Result run (String source) {
+		StringWriter output = new StringWriter();
+		Interpreter interpreter = new Interpreter(new WriterOutputSink(output));
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+
+		PrintStream standardError = System.err;
+		System.setErr(new PrintStream(errors, true, StandardCharsets.UTF_8));
+		int exitCode;
+		try {
+			exitCode = Lox.runSource(source, interpreter, Paths.get(""));
+		} finally {
+			System.setErr(standardError);
+		}
+
+		return new Result(output.toString(), errors.toString(StandardCharsets.UTF_8), exitCode);
+	}
+
+	static String lines (String... lines) {
+		StringBuilder text = new StringBuilder();
+
+		for (String line : lines) {
+			text.append(line).append(System.lineSeparator());
+		}
+
+		return text.toString();
+	}
+
+	static final class Result {
+		final String output;
+		final String errors;
+		final int exitCode;
+
+		Result (String output, String errors, int exitCode) {
+			this.output = output;
+			this.errors = errors;
+			this.exitCode = exitCode;
+		}
+
+		String firstErrorLine () {
+			return errors.lines().findFirst().orElse("");
+		}
+	}
+}
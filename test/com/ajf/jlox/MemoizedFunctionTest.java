@@ -0,0 +1,35 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemoizedFunctionTest {
+	private static final LoxCallable SQUARE = new LoxCallable() {
+		@Override
+		public Object call (Interpreter interpreter, List<Object> arguments) {
+			double value = (Double) arguments.get(0);
+			return value * value;
+		}
+
+		@Override
+		public int arity () {
+			return 1;
+		}
+	};
+
+	@Test
+	void fullCacheChargesNoMoreMemory () {
+		Interpreter interpreter = new Interpreter(OutputSink.discarding());
+		MemoizedFunction memoized = new MemoizedFunction(SQUARE, 4);
+		long before = interpreter.memory.getUsedBytes();
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals((double) i * i, memoized.call(interpreter, List.of((double) i)));
+		}
+
+		assertEquals(4 * MemoryBudget.ENTRY_BYTES, interpreter.memory.getUsedBytes() - before);
+	}
+}
@@ -0,0 +1,78 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NumberFormatterTest {
+	private final NumberFormatter formatter = new NumberFormatter();
+
+	@Test
+	void formatsIntegers () {
+		assertFormatsLikeDoubleToString(0, 1, -1, 7, 10, 42, -42, 100, 65536, 999_999, 1_000_000, 9_999_999,
+										1e7, 12_345_678, 1e15, 1e16, -1e16, 9_007_199_254_740_993.0,
+										Long.MAX_VALUE, Long.MIN_VALUE);
+	}
+
+	@Test
+	void formatsSpecialValues () {
+		assertFormatsLikeDoubleToString(-0.0, 0.0, Double.NaN, Double.POSITIVE_INFINITY,
+										Double.NEGATIVE_INFINITY);
+	}
+
+	@Test
+	void formatsVeryLargeAndVerySmallValues () {
+		assertFormatsLikeDoubleToString(Double.MAX_VALUE, -Double.MAX_VALUE, Double.MIN_VALUE, Double.MIN_NORMAL,
+										1e300, 1.5e-300, 1.2345e20, 1e-4, -1e-5, 6.02214076e23);
+	}
+
+	@Test
+	void formatsValuesAtThePlainNotationBoundaries () {
+		assertFormatsLikeDoubleToString(1e-3, Math.nextDown(1e-3), Math.nextUp(1e-3), 0.00123, -0.001,
+										Math.nextDown(1e7), Math.nextUp(1e7), 9_999_999.5, -9_999_999.99);
+	}
+
+	@Test
+	void formatsValuesNearRoundingBoundaries () {
+		assertFormatsLikeDoubleToString(0.1, 0.2, 0.1 + 0.2, 0.3, 1.0 / 3, 2.0 / 3, 0.5, 0.05, 0.005, 1.005,
+										2.675, 1.15, 123.456, 0.123456789012345, 0.1234567890123456,
+										1234567.891011, 4.35, 100.0 / 7, Math.PI, Math.E, -Math.PI);
+
+		for (double value : new double[] {0.1, 0.7, 1.1, 3.3, 99.99, 1234.5678, 9_999_999.9}) {
+			assertFormatsLikeDoubleToString(Math.nextDown(value), value, Math.nextUp(value));
+		}
+	}
+
+	@Test
+	void formatsRandomValues () {
+		Random random = new Random(42);
+
+		for (int i = 0; i < 100_000; i++) {
+			assertFormatsLikeDoubleToString(random.nextInt(10_000_000) / 100.0,
+											random.nextDouble() * 1e7,
+											random.nextDouble(),
+											-random.nextDouble() / 100,
+											Double.longBitsToDouble(random.nextLong()));
+		}
+	}
+
+	private void assertFormatsLikeDoubleToString (double... values) {
+		for (double value : values) {
+			assertEquals(stringify(value), new String(formatter.buffer(), 0, formatter.format(value)),
+						 () -> "formatting " + Double.toString(value));
+		}
+	}
+
+	//How the interpreter printed numbers before NumberFormatter
+	private static String stringify (double value) {
+		String text = Double.toString(value);
+
+		if (text.endsWith(".0")) {
+			text = text.substring(0, text.length() - 2);
+		}
+
+		return text;
+	}
+}
@@ -0,0 +1,153 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelParserTest {
+	//Small enough that every script below is split into many chunks
+	private static final int CHUNK_SIZE = 64;
+	private static final int MAX_DIAGNOSTICS = 10;
+
+	@Test
+	void matchesParserOnValidScript () {
+		ParseResult result = assertSameAsParser(generateScript(200));
+		assertFalse(result.hasErrors());
+	}
+
+	@Test
+	void matchesParserWhenOneChunkFails () {
+		String script = generateScript(100) + "var broken = ;\n" + generateScript(100);
+		ParseResult result = assertSameAsParser(script);
+		assertEquals(1, result.diagnostics.getEntries().size());
+	}
+
+	@Test
+	void matchesParserWithErrorsInSeveralChunks () {
+		String script = "fun (a) { return a; }\n" + generateScript(50)
+				+ "class { }\n" + generateScript(50)
+				+ "print 1 +;\n" + generateScript(50)
+				+ "var last = (1;\n";
+		ParseResult result = assertSameAsParser(script);
+		assertTrue(result.diagnostics.getEntries().size() > 1);
+	}
+
+	@Test
+	void matchesParserWhenDiagnosticsOverflow () {
+		StringBuilder script = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			script.append(generateScript(5)).append("var x").append(i).append(" = ;\n");
+		}
+
+		ParseResult result = assertSameAsParser(script.toString());
+		assertTrue(result.diagnostics.isFull());
+	}
+
+	@Test
+	void matchesParserOnSingleChunk () {
+		assertSameAsParser("print 1 + 2;");
+	}
+
+	private ParseResult assertSameAsParser (String script) {
+		List<Token> tokens = new Scanner(script).scanTokens();
+		ParseResult expected = Parser.parseWithDiagnostics(tokens, MAX_DIAGNOSTICS);
+
+		ForkJoinPool pool = new ForkJoinPool(4);
+		ParseResult actual;
+		try {
+			actual = new ParallelParser(tokens, pool, CHUNK_SIZE).parse(MAX_DIAGNOSTICS);
+		} finally {
+			pool.shutdown();
+		}
+
+		assertEquals(describe(expected.statements), describe(actual.statements));
+		assertEquals(diagnosticLines(expected), diagnosticLines(actual));
+		assertEquals(expected.diagnostics.isFull(), actual.diagnostics.isFull());
+		return actual;
+	}
+
+	private static List<String> diagnosticLines (ParseResult result) {
+		List<String> lines = new ArrayList<>();
+		for (Diagnostics.Diagnostic diagnostic : result.diagnostics.getEntries()) {
+			lines.add(diagnostic.toString());
+		}
+		return lines;
+	}
+
+	//Structural dump of the tree: every instance field of every node, with tokens reduced to their type, lexeme and line
+	private static String describe (Object node) {
+		StringBuilder builder = new StringBuilder();
+		describe(node, builder);
+		return builder.toString();
+	}
+
+	private static void describe (Object node, StringBuilder builder) {
+		if (node instanceof Token) {
+			Token token = (Token) node;
+			builder.append(token.type).append(' ').append(token.lexeme).append('@').append(token.line);
+		} else if (node instanceof List) {
+			builder.append('[');
+			for (Object element : (List<?>) node) {
+				describe(element, builder);
+				builder.append(", ");
+			}
+			builder.append(']');
+		} else if (node instanceof Statement || node instanceof Expression) {
+			builder.append(node.getClass().getSimpleName()).append('(');
+			for (Class<?> type = node.getClass(); type != Object.class; type = type.getSuperclass()) {
+				for (Field field : type.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers())) {
+						continue;
+					}
+
+					field.setAccessible(true);
+					builder.append(field.getName()).append('=');
+					try {
+						describe(field.get(node), builder);
+					} catch (IllegalAccessException exception) {
+						throw new AssertionError(exception);
+					}
+					builder.append(' ');
+				}
+			}
+			builder.append(')');
+		} else {
+			builder.append(node);
+		}
+	}
+
+	private static String generateScript (int declarations) {
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < declarations; i++) {
+			if (i % 3 == 0) {
+				builder.append("class Shape").append(i).append(" < Base {\n")
+					   .append("\tarea(width, height) {\n")
+					   .append("\t\tvar result = super.area(width, height) * this.scale;\n")
+					   .append("\t\tif (result < 0) { return -result; } else { return result; }\n")
+					   .append("\t}\n")
+					   .append("}\n");
+			} else {
+				builder.append("fun compute").append(i).append("(a, b) {\n")
+					   .append("\tvar total = 0;\n")
+					   .append("\tfor (var i = 0; i < a; i = i + 1) {\n")
+					   .append("\t\ttotal = total + b * i - (a / 2);\n")
+					   .append("\t}\n")
+					   .append("\twhile (total > 100 and b != nil) { total = total - 100; }\n")
+					   .append("\tprint \"compute").append(i).append("\";\n")
+					   .append("\treturn total;\n")
+					   .append("}\n");
+			}
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,54 @@
+package com.ajf.jlox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThisBindingTest {
+	@Test
+	void methodSeesItsReceiver () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class Counter { init() { this.count = 0; } bump() { this.count = this.count + 1; return this; } }\n"
+				+ "var c = Counter(); c.bump().bump().bump(); print c.count;");
+
+		assertEquals(LoxTestScripts.lines("3"), result.output);
+	}
+
+	@Test
+	void detachedMethodKeepsItsInstance () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class Box { init(v) { this.v = v; } get() { return this.v; } }\n"
+				+ "var a = Box(1); var b = Box(2);\n"
+				+ "var getA = a.get; var getB = b.get;\n"
+				+ "a.v = 10;\n"
+				+ "print getA(); print getB();\n"
+				+ "b.get = getA; print b.get();");
+
+		assertEquals(LoxTestScripts.lines("10", "2", "10"), result.output);
+	}
+
+	@Test
+	void closureInsideMethodCapturesThis () {
+		LoxTestScripts.Result result = LoxTestScripts.run(
+				"class Greeter { init(name) { this.name = name; }\n"
+				+ "  greeter() { fun greet() { return \"hi \" + this.name; } return greet; } }\n"
+				+ "var greet = Greeter(\"lox\").greeter(); print greet();");
+
+		assertEquals(LoxTestScripts.lines("hi lox"), result.output);
+	}
+
+	@Test
+	void thisOutsideAClass () {
+		assertStaticError("print this;");
+		assertStaticError("fun f() { return this; }");
+	}
+
+	private static void assertStaticError (String source) {
+		LoxTestScripts.Result result = LoxTestScripts.run(source);
+
+		assertEquals("", result.output);
+		assertEquals(65, result.exitCode);
+		assertTrue(result.errors.contains("Can't use 'this' outside of a class."), result.errors);
+	}
+}